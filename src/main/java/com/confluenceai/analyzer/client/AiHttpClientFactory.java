@@ -0,0 +1,131 @@
+package com.confluenceai.analyzer.client;
+
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP clients and circuit breakers for the AI providers (chat completions, embeddings).
+ *
+ * <p>Each provider name gets its own connection pool and dispatcher, so a slow provider cannot hold
+ * connections or request slots another one needs, and explicit connect, read and whole-call deadlines
+ * instead of the client libraries' defaults. Settings are read as {@code ai.http.<provider>.<setting>},
+ * falling back to {@code ai.http.<setting>}; breakers likewise from {@code ai.circuit.<provider>.<setting>}
+ * and {@code ai.circuit.<setting>}.
+ */
+@Component
+public class AiHttpClientFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiHttpClientFactory.class);
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public AiHttpClientFactory(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The shared client of {@code provider}; callers add their own interceptors with {@code newBuilder()},
+     * which keeps the pool and dispatcher
+     */
+    public OkHttpClient client(String provider) {
+        return clients.computeIfAbsent(provider, this::createClient);
+    }
+
+    /**
+     * An OpenAI client on {@code provider}'s pool and deadlines
+     */
+    public OpenAiService openAi(String provider, String apiKey) {
+        return openAi(client(provider), apiKey);
+    }
+
+    /**
+     * An OpenAI client for streamed completions on {@code provider}'s pool. A streamed answer legitimately
+     * lasts longer than the whole-call deadline, so it has none; the read timeout still bounds the gap
+     * between chunks, which is what catches a stalled stream.
+     */
+    public OpenAiService openAiStreaming(String provider, String apiKey) {
+        return openAi(client(provider).newBuilder().callTimeout(0, TimeUnit.MILLISECONDS).build(), apiKey);
+    }
+
+    private static OpenAiService openAi(OkHttpClient base, String apiKey) {
+        OkHttpClient client = base.newBuilder()
+                .addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                        .header("Authorization", "Bearer " + apiKey)
+                        .build()))
+                .build();
+        OpenAiApi api = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper())
+                .create(OpenAiApi.class);
+        return new OpenAiService(api, client.dispatcher().executorService());
+    }
+
+    public CircuitBreaker circuitBreaker(String provider) {
+        return breakers.computeIfAbsent(provider, name -> new CircuitBreaker(name,
+                circuitSetting(name, "window-size", Integer.class, 20),
+                circuitSetting(name, "minimum-calls", Integer.class, 10),
+                circuitSetting(name, "failure-rate-threshold", Double.class, 0.5),
+                Duration.ofSeconds(circuitSetting(name, "open-seconds", Long.class, 30L)),
+                meterRegistry));
+    }
+
+    private OkHttpClient createClient(String provider) {
+        long connectMs = httpSetting(provider, "connect-timeout-ms", Long.class, 5_000L);
+        long readMs = httpSetting(provider, "read-timeout-ms", Long.class, 30_000L);
+        long callMs = httpSetting(provider, "call-timeout-ms", Long.class, 60_000L);
+        int maxIdle = httpSetting(provider, "max-idle-connections", Integer.class, 10);
+        long keepAliveSeconds = httpSetting(provider, "keep-alive-seconds", Long.class, 300L);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(httpSetting(provider, "max-requests", Integer.class, 64));
+        dispatcher.setMaxRequestsPerHost(httpSetting(provider, "max-requests-per-host", Integer.class, 32));
+
+        logger.info("AI HTTP client '{}': connect {} ms, read {} ms, call {} ms, {} idle connections",
+                provider, connectMs, readMs, callMs, maxIdle);
+        return new OkHttpClient.Builder()
+                .connectTimeout(connectMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(readMs, TimeUnit.MILLISECONDS)
+                .callTimeout(callMs, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(maxIdle, keepAliveSeconds, TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    private <T> T httpSetting(String provider, String setting, Class<T> type, T defaultValue) {
+        return setting("ai.http", provider, setting, type, defaultValue);
+    }
+
+    private <T> T circuitSetting(String provider, String setting, Class<T> type, T defaultValue) {
+        return setting("ai.circuit", provider, setting, type, defaultValue);
+    }
+
+    private <T> T setting(String prefix, String provider, String setting, Class<T> type, T defaultValue) {
+        T shared = environment.getProperty(prefix + "." + setting, type, defaultValue);
+        return environment.getProperty(prefix + "." + provider + "." + setting, type, shared);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (OkHttpClient client : clients.values()) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+    }
+}
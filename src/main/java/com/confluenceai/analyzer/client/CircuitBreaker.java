@@ -0,0 +1,200 @@
+package com.confluenceai.analyzer.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Count-based circuit breaker for calls to an AI provider.
+ *
+ * <p>The outcomes of the last {@code windowSize} calls are kept; once at least {@code minimumCalls} are
+ * recorded and the failure share reaches {@code failureRateThreshold}, the breaker opens and every call
+ * fails fast with {@link CallNotPermittedException} for {@code openDuration}. It then lets one probe call
+ * through: success closes it with a fresh window, failure opens it again.
+ *
+ * <p>Every state change starts a new epoch, and a {@link Permit} only reports into the epoch it was granted
+ * in: a slow call that started before the breaker opened cannot close it, and only the probe's own outcome
+ * decides a half-open breaker.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public static class CallNotPermittedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public CallNotPermittedException(String name) {
+            super("Circuit breaker '" + name + "' is open");
+        }
+    }
+
+    /**
+     * Permission for one call from {@link #tryAcquire()}; pass it back to {@link #onSuccess} or {@link #onFailure}
+     */
+    public static final class Permit {
+        private final long epoch;
+        private final boolean probe;
+
+        private Permit(long epoch, boolean probe) {
+            this.epoch = epoch;
+            this.probe = probe;
+        }
+    }
+
+    private final String name;
+    private final boolean[] outcomes; // true = failure, circular
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private long epoch;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAtMillis;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, MeterRegistry meterRegistry) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, meterRegistry,
+                System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                   Duration openDuration, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.name = name;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.rejected = Counter.builder("ai.circuit.rejected")
+                .description("Calls refused because the provider's circuit breaker was open")
+                .tag("provider", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("provider", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run {@code call} through the breaker; exceptions it throws count as failures and are rethrown
+     */
+    public <T> T execute(Supplier<T> call) {
+        Permit permit = tryAcquire();
+        if (permit == null) {
+            throw new CallNotPermittedException(name);
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            onFailure(permit);
+            throw e;
+        }
+        onSuccess(permit);
+        return result;
+    }
+
+    /**
+     * Permission for one call, which must be followed by {@link #onSuccess} or {@link #onFailure};
+     * null if the call is not permitted
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtMillis >= openMillis) {
+            transition(State.HALF_OPEN);
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return new Permit(epoch, false);
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return new Permit(epoch, true);
+        }
+        rejected.increment();
+        return null;
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.epoch != epoch) {
+            return;
+        }
+        if (permit.probe) {
+            logger.info("Circuit breaker '{}' closed after a successful probe", name);
+            transition(State.CLOSED);
+            resetWindow();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (permit.epoch != epoch) {
+            return;
+        }
+        if (permit.probe) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        logger.warn("Circuit breaker '{}' opened; failing fast for {} ms", name, openMillis);
+        transition(State.OPEN);
+        openedAtMillis = clock.getAsLong();
+        probeInFlight = false;
+        resetWindow();
+    }
+
+    // Outcomes of calls permitted before this point no longer count
+    private void transition(State next) {
+        state = next;
+        epoch++;
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
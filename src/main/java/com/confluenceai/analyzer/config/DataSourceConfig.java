@@ -0,0 +1,89 @@
+package com.confluenceai.analyzer.config;
+
+import com.confluenceai.analyzer.vector.PgVector;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * PostgreSQL driver settings the repositories rely on, applied whatever the JDBC URL says.
+ * {@code reWriteBatchedInserts} lets the driver send a JDBC batch as multi-row INSERTs, which is what makes
+ * the embedding batch insert one round trip per page; turn it off with {@code db.rewrite-batched-inserts=false}.
+ *
+ * <p>Every new pooled connection also registers {@link PgVector} for the pgvector {@code vector} type and
+ * enables binary transfer for its OID, so vectors are bound and read in pgvector's binary form instead of
+ * being printed and parsed as text. The OID belongs to the extension, so a connection opened before
+ * {@code CREATE EXTENSION vector} has run keeps the text form; turn it off with {@code db.binary-vectors=false}.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    // Static, so the post-processor is registered before the DataSource bean is created
+    @Bean
+    public static BeanPostProcessor postgresDriverProperties(Environment environment) {
+        boolean rewriteBatchedInserts = environment.getProperty("db.rewrite-batched-inserts", Boolean.class, true);
+        boolean binaryVectors = environment.getProperty("db.binary-vectors", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getDataSource() == null
+                        && dataSource.getJdbcUrl() != null && dataSource.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+                    if (rewriteBatchedInserts) {
+                        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+                    }
+                    if (binaryVectors) {
+                        // The same driver data source Hikari would build from the URL, with a hook on each new connection
+                        dataSource.setDataSource(new VectorTypeDataSource(new DriverDataSource(dataSource.getJdbcUrl(),
+                                dataSource.getDriverClassName(), dataSource.getDataSourceProperties(),
+                                dataSource.getUsername(), dataSource.getPassword())));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static class VectorTypeDataSource extends DelegatingDataSource {
+
+        VectorTypeDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return registerVectorType(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return registerVectorType(super.getConnection(username, password));
+        }
+
+        private static Connection registerVectorType(Connection connection) throws SQLException {
+            BaseConnection pgConnection = connection.unwrap(BaseConnection.class);
+            pgConnection.addDataType("vector", PgVector.class);
+            int oid = pgConnection.getTypeInfo().getPGType("vector");
+            if (oid != Oid.UNSPECIFIED) {
+                pgConnection.getQueryExecutor().addBinarySendOid(oid);
+                pgConnection.getQueryExecutor().addBinaryReceiveOid(oid);
+            } else {
+                logger.debug("pgvector type not found, vectors use the text form on this connection");
+            }
+            return connection;
+        }
+    }
+}
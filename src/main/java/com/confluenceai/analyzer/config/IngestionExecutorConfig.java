@@ -0,0 +1,31 @@
+package com.confluenceai.analyzer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors used by the ingestion pipeline.
+ * Sync jobs run on their own bounded pool so long-running syncs never occupy HTTP worker threads.
+ */
+@Configuration
+public class IngestionExecutorConfig {
+
+    public static final String SYNC_EXECUTOR = "syncExecutor";
+
+    @Bean(name = SYNC_EXECUTOR)
+    public ThreadPoolTaskExecutor syncExecutor(
+            @Value("${ingestion.sync.pool-size:2}") int poolSize,
+            @Value("${ingestion.sync.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sync-");
+        // Interrupt running syncs on shutdown instead of blocking it
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,41 @@
+package com.confluenceai.analyzer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor for the concurrent stages of a search (query embedding, candidate queries, hydration).
+ * Those stages spend their time waiting on the embedding provider and the database, so each one gets
+ * its own virtual thread; concurrency is bounded by the connection pool, not by this executor.
+ * Asynchronous LLM summaries get a small bounded pool instead, sized to what the provider's rate limit allows.
+ */
+@Configuration
+public class SearchExecutorConfig {
+
+    public static final String SEARCH_EXECUTOR = "searchExecutor";
+    public static final String SUMMARY_EXECUTOR = "summaryExecutor";
+
+    @Bean(name = SEARCH_EXECUTOR, destroyMethod = "close")
+    public ExecutorService searchExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("search-", 0).factory());
+    }
+
+    @Bean(name = SUMMARY_EXECUTOR)
+    public ThreadPoolTaskExecutor summaryExecutor(
+            @Value("${llm.summary.pool-size:4}") int poolSize,
+            @Value("${llm.summary.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("summary-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
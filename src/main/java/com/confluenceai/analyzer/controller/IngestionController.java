@@ -11,6 +11,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -36,6 +38,7 @@ public class IngestionController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "202", description = "Sync started successfully",
                     content = @Content(schema = @Schema(implementation = SyncResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Sync queue is full"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/sync")
@@ -43,6 +46,8 @@ public class IngestionController {
         try {
             SyncResponse response = ingestionService.startSync(request);
             return ResponseEntity.accepted().body(response);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             logger.error("Error starting sync", e);
             return ResponseEntity.internalServerError().build();
@@ -70,6 +75,26 @@ public class IngestionController {
         }
     }
     
+    @Operation(
+            summary = "Cancel sync",
+            description = "Cancels a queued or running sync operation. Pages already processed are kept."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cancellation requested",
+                    content = @Content(schema = @Schema(implementation = SyncResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/sync/{syncId}/cancel")
+    public ResponseEntity<SyncResponse> cancelSync(@PathVariable UUID syncId) {
+        try {
+            SyncResponse response = ingestionService.cancelSync(syncId);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error cancelling sync", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @Operation(
             summary = "Ingest a specific page",
             description = "Manually triggers ingestion for a specific Confluence page by page ID."
@@ -1,7 +1,9 @@
 package com.confluenceai.analyzer.controller;
 
+import com.confluenceai.analyzer.dto.SearchRequest;
 import com.confluenceai.analyzer.entity.RcaPage;
 import com.confluenceai.analyzer.repository.RcaPageRepository;
+import com.confluenceai.analyzer.service.impl.VectorRecallBenchmark;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -23,14 +25,17 @@ import java.util.Map;
 public class ManagementController {
     
     private final RcaPageRepository rcaPageRepository;
+    private final VectorRecallBenchmark recallBenchmark;
     private final String defaultSpaces;
     private final String defaultTags;
     
     public ManagementController(
             RcaPageRepository rcaPageRepository,
+            VectorRecallBenchmark recallBenchmark,
             @Value("${confluence.spaces:}") String defaultSpaces,
             @Value("${confluence.tags:}") String defaultTags) {
         this.rcaPageRepository = rcaPageRepository;
+        this.recallBenchmark = recallBenchmark;
         this.defaultSpaces = defaultSpaces;
         this.defaultTags = defaultTags;
     }
@@ -85,5 +90,22 @@ public class ManagementController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+    
+    @Operation(
+            summary = "Benchmark vector search recall",
+            description = "Samples stored chunk embeddings as queries and compares the active vector store's "
+                    + "top-k with an exact scan. Reports recall@k, latency and the vector index size."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Benchmark completed")
+    })
+    @PostMapping("/vector-index/benchmark")
+    public ResponseEntity<Map<String, Object>> benchmarkRecall(
+            @RequestParam(defaultValue = "50") int queries,
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) SearchRequest.Recall recall) {
+        int sampleSize = Math.max(1, Math.min(queries, 1000));
+        int topK = Math.max(1, Math.min(k, 100));
+        return ResponseEntity.ok(recallBenchmark.run(sampleSize, topK, recall));
+    }
 }
-
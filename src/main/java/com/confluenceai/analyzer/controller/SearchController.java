@@ -1,10 +1,14 @@
 package com.confluenceai.analyzer.controller;
 
+import com.confluenceai.analyzer.config.SearchExecutorConfig;
 import com.confluenceai.analyzer.dto.SearchRequest;
 import com.confluenceai.analyzer.dto.SearchResponse;
 import com.confluenceai.analyzer.dto.SearchResult;
+import com.confluenceai.analyzer.dto.SummaryTicketResponse;
 import com.confluenceai.analyzer.service.LLMService;
 import com.confluenceai.analyzer.service.SearchService;
+import com.confluenceai.analyzer.service.impl.AsyncSummaryService;
+import com.confluenceai.analyzer.service.impl.SearchResultCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,11 +17,21 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/search")
@@ -28,15 +42,27 @@ public class SearchController {
     
     private final SearchService searchService;
     private final LLMService llmService;
+    private final SearchResultCache resultCache;
+    private final AsyncSummaryService asyncSummaryService;
+    private final ExecutorService searchExecutor;
     private final int defaultTopK;
+    private final long streamTimeoutMs;
     
     public SearchController(
             SearchService searchService,
             LLMService llmService,
-            @Value("${search.default-top-k:5}") int defaultTopK) {
+            SearchResultCache resultCache,
+            AsyncSummaryService asyncSummaryService,
+            @Qualifier(SearchExecutorConfig.SEARCH_EXECUTOR) ExecutorService searchExecutor,
+            @Value("${search.default-top-k:5}") int defaultTopK,
+            @Value("${search.stream.timeout-ms:120000}") long streamTimeoutMs) {
         this.searchService = searchService;
         this.llmService = llmService;
+        this.resultCache = resultCache;
+        this.asyncSummaryService = asyncSummaryService;
+        this.searchExecutor = searchExecutor;
         this.defaultTopK = defaultTopK;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
     
     @Operation(
@@ -49,40 +75,18 @@ public class SearchController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
-    public ResponseEntity<SearchResponse> search(@RequestBody SearchRequest request) {
+    public ResponseEntity<SearchResponse> search(
+            @RequestBody SearchRequest request,
+            @RequestParam(name = "summary", required = false) String summaryMode) {
         long startTime = System.currentTimeMillis();
         
         try {
             int topK = request.getTopK() != null ? request.getTopK() : defaultTopK;
             String userId = "system"; // TODO: Get from authentication context
-            
-            List<SearchResult> results = searchService.searchSimilarRCAs(
-                    request.getQuery(), topK, userId);
-            
-            // Generate LLM summary (optional - may fail if LLM not configured)
-            String summary = "Similar incidents found. Configure LLM for AI-generated summaries.";
-            try {
-                summary = llmService.generateSummary(request.getQuery(), results);
-            } catch (Exception e) {
-                logger.warn("LLM summary generation failed, returning results without summary: {}", e.getMessage());
-            }
-            
-            // Determine confidence based on similarity scores
-            String confidence = determineConfidence(results);
-            
-            SearchResponse.Summary summaryObj = new SearchResponse.Summary();
-            summaryObj.setSuggestedRootCause(summary);
-            summaryObj.setConfidence(confidence);
-            summaryObj.setSimilarIncidents(results.size());
-            
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            SearchResponse response = new SearchResponse();
-            response.setQuery(request.getQuery());
-            response.setResults(results);
-            response.setSummary(summaryObj);
-            response.setExecutionTimeMs(executionTime);
-            
+            SearchResponse response = answer(SearchResultCache.key("search", request, topK), request, startTime,
+                    () -> searchService.search(request.getQuery(), topK, userId, request.getFilterBy(), request.getRecall()),
+                    isAsync(summaryMode) ? AsyncSummaryService.Kind.SUMMARY : null,
+                    summaryOf(request.getQuery()));
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Error processing search request", e);
@@ -90,6 +94,22 @@ public class SearchController {
         }
     }
     
+    @Operation(
+            summary = "Search similar RCAs with a streamed summary",
+            description = "Same search as POST /api/v1/search, answered as Server-Sent Events: a 'results' event as soon as the ranked results are ready, 'summary' events carrying summary text as the LLM produces it, then a 'done' event with the complete response."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchStream(@RequestBody SearchRequest request) {
+        long startTime = System.currentTimeMillis();
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        EventStream stream = new EventStream(emitter);
+        searchExecutor.execute(() -> streamSearch(request, stream, startTime));
+        return emitter;
+    }
+    
     @Operation(
             summary = "Search by symptoms",
             description = "Searches for RCAs based on symptom similarity. Focuses on matching symptoms from historical incidents."
@@ -100,34 +120,17 @@ public class SearchController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/symptoms")
-    public ResponseEntity<SearchResponse> searchBySymptoms(@RequestBody SearchRequest request) {
+    public ResponseEntity<SearchResponse> searchBySymptoms(
+            @RequestBody SearchRequest request,
+            @RequestParam(name = "summary", required = false) String summaryMode) {
         long startTime = System.currentTimeMillis();
         
         try {
             int topK = request.getTopK() != null ? request.getTopK() : defaultTopK;
-            List<SearchResult> results = searchService.searchBySymptoms(request.getQuery(), topK);
-            
-            String summary = "Similar incidents found.";
-            try {
-                summary = llmService.generateSummary(request.getQuery(), results);
-            } catch (Exception e) {
-                logger.warn("LLM summary generation failed: {}", e.getMessage());
-            }
-            String confidence = determineConfidence(results);
-            
-            SearchResponse.Summary summaryObj = new SearchResponse.Summary();
-            summaryObj.setSuggestedRootCause(summary);
-            summaryObj.setConfidence(confidence);
-            summaryObj.setSimilarIncidents(results.size());
-            
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            SearchResponse response = new SearchResponse();
-            response.setQuery(request.getQuery());
-            response.setResults(results);
-            response.setSummary(summaryObj);
-            response.setExecutionTimeMs(executionTime);
-            
+            SearchResponse response = answer(SearchResultCache.key("symptoms", request, topK), request, startTime,
+                    () -> searchService.search(request.getQuery(), topK, null, request.getFilterBy(), request.getRecall()),
+                    isAsync(summaryMode) ? AsyncSummaryService.Kind.SUMMARY : null,
+                    summaryOf(request.getQuery()));
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Error processing symptoms search", e);
@@ -145,39 +148,359 @@ public class SearchController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/root-cause")
-    public ResponseEntity<SearchResponse> searchByRootCause(@RequestBody SearchRequest request) {
+    public ResponseEntity<SearchResponse> searchByRootCause(
+            @RequestBody SearchRequest request,
+            @RequestParam(name = "summary", required = false) String summaryMode) {
         long startTime = System.currentTimeMillis();
         
         try {
             int topK = request.getTopK() != null ? request.getTopK() : defaultTopK;
-            List<SearchResult> results = searchService.searchByRootCause(request.getQuery(), topK);
-            
-            String summary = "Root cause analysis from similar incidents.";
+            SearchResponse response = answer(SearchResultCache.key("root-cause", request, topK), request, startTime,
+                    () -> searchService.searchRootCause(request.getQuery(), topK, request.getFilterBy(), request.getRecall()),
+                    isAsync(summaryMode) ? AsyncSummaryService.Kind.ROOT_CAUSE : null,
+                    rootCauseOf(request.getQuery()));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error processing root cause search", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @Operation(
+            summary = "Get an asynchronous summary",
+            description = "Returns the state of a summary requested with summary=async, and the summary once it is READY. Tickets expire after llm.summary.ticket-ttl-seconds."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ticket found",
+                    content = @Content(schema = @Schema(implementation = SummaryTicketResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired ticket")
+    })
+    @GetMapping("/summaries/{ticketId}")
+    public ResponseEntity<SummaryTicketResponse> getSummary(@PathVariable String ticketId) {
+        SummaryTicketResponse ticket = asyncSummaryService.status(ticketId);
+        return ticket != null ? ResponseEntity.ok(ticket) : ResponseEntity.notFound().build();
+    }
+    
+    private void streamSearch(SearchRequest request, EventStream stream, long startTime) {
+        try {
+            if (stream.isClosed()) {
+                // Timed out or abandoned while queued
+                return;
+            }
+            int topK = request.getTopK() != null ? request.getTopK() : defaultTopK;
+            boolean[] resultsSent = {false};
+            StringBuilder streamed = new StringBuilder();
+            // Same answer as POST /search, so the two endpoints share cache entries
+            SearchResponse response = answer(SearchResultCache.key("search", request, topK), request, startTime,
+                    () -> searchService.search(request.getQuery(), topK, "system", request.getFilterBy(), request.getRecall()),
+                    null,
+                    new Summarizer() {
+                        @Override
+                        public void onResults(SearchResponse ranked) {
+                            ranked.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                            stream.send("results", ranked);
+                            resultsSent[0] = true;
+                        }
+                        
+                        @Override
+                        public String summarize(SearchResponse ranked) {
+                            long summaryStart = System.currentTimeMillis();
+                            return stream.interruptibly(() -> llmService.streamSummary(
+                                    request.getQuery(), ranked.getResults(), ranked.getQueryEmbedding(), fragment -> {
+                                        if (streamed.isEmpty()) {
+                                            ranked.getTimings().put("firstToken", System.currentTimeMillis() - summaryStart);
+                                        }
+                                        streamed.append(fragment);
+                                        stream.send("summary", Map.of("text", fragment));
+                                    }));
+                        }
+                        
+                        // Keep what the client has already been shown; otherwise send the extractive summary
+                        @Override
+                        public String fallback(SearchResponse ranked) {
+                            if (!streamed.isEmpty()) {
+                                return streamed.toString();
+                            }
+                            String summary = llmService.fallbackSummary(request.getQuery(), ranked.getResults());
+                            stream.send("summary", Map.of("text", summary));
+                            return summary;
+                        }
+                    });
+            if (!resultsSent[0]) {
+                // Answered from the cache
+                stream.send("results", withoutSummary(response));
+                stream.send("summary", Map.of("text", response.getSummary().getSuggestedRootCause()));
+            }
+            stream.send("done", response);
+            stream.complete();
+        } catch (StreamClosedException e) {
+            // Client disconnected or the stream timed out; the LLM stream has already been cancelled
+            logger.debug("Search stream closed: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error processing streaming search request", e);
             try {
-                summary = llmService.synthesizeRootCause(results);
-            } catch (Exception e) {
-                logger.warn("LLM root cause synthesis failed: {}", e.getMessage());
+                stream.send("error", Map.of("message", "Search failed"));
+                stream.complete();
+            } catch (StreamClosedException ignored) {
+                // Client already gone
+            }
+        }
+    }
+    
+    /**
+     * The response is gone (client disconnect, emitter timeout or error), so no further work is useful
+     */
+    private static class StreamClosedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        StreamClosedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+    
+    /**
+     * An {@link SseEmitter} together with whether it can still be written to. The emitter's timeout, error
+     * and completion callbacks close it; once closed every {@link #send} throws {@link StreamClosedException},
+     * and an LLM stream running under {@link #interruptibly} is interrupted, which cancels the HTTP call.
+     */
+    private static final class EventStream {
+        
+        private final SseEmitter emitter;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private Thread summarizing;
+        
+        EventStream(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onTimeout(() -> {
+                close();
+                emitter.complete();
+            });
+            emitter.onError(e -> close());
+            emitter.onCompletion(this::close);
+        }
+        
+        boolean isClosed() {
+            return closed.get();
+        }
+        
+        void send(String eventName, Object data) {
+            if (closed.get()) {
+                throw new StreamClosedException("Event stream already closed", null);
+            }
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // IllegalStateException: the emitter completed (e.g. timed out) between the check and the send
+                close();
+                throw new StreamClosedException(e.getMessage(), e);
+            }
+        }
+        
+        void complete() {
+            if (closed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+        
+        /**
+         * Run {@code call} on this thread, interrupting it if the stream closes meanwhile
+         */
+        <T> T interruptibly(Supplier<T> call) {
+            synchronized (this) {
+                if (closed.get()) {
+                    throw new StreamClosedException("Event stream already closed", null);
+                }
+                summarizing = Thread.currentThread();
+            }
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (closed.get()) {
+                    throw new StreamClosedException("Event stream closed during the summary", e);
+                }
+                throw e;
+            } finally {
+                synchronized (this) {
+                    summarizing = null;
+                }
+                // An interrupt that arrived as the call returned must not leak into the rest of the request
+                Thread.interrupted();
+            }
+        }
+        
+        private void close() {
+            closed.set(true);
+            synchronized (this) {
+                if (summarizing != null) {
+                    summarizing.interrupt();
+                }
+            }
+        }
+    }
+    
+    /**
+     * How an endpoint has the model summarise its results
+     */
+    private interface Summarizer {
+        
+        /**
+         * Called with the freshly ranked response before {@link #summarize}; not called for cached answers
+         */
+        default void onResults(SearchResponse response) {
+        }
+        
+        /**
+         * The model's summary of the results; throws if the model is unavailable
+         */
+        String summarize(SearchResponse response) throws Exception;
+        
+        /**
+         * What to answer with instead when {@link #summarize} failed; never cached
+         */
+        String fallback(SearchResponse response);
+    }
+    
+    private Summarizer summaryOf(String query) {
+        return new Summarizer() {
+            @Override
+            public String summarize(SearchResponse response) {
+                return llmService.generateSummary(query, response.getResults(), response.getQueryEmbedding());
             }
-            String confidence = determineConfidence(results);
-            
-            SearchResponse.Summary summaryObj = new SearchResponse.Summary();
-            summaryObj.setSuggestedRootCause(summary);
-            summaryObj.setConfidence(confidence);
-            summaryObj.setSimilarIncidents(results.size());
-            
-            long executionTime = System.currentTimeMillis() - startTime;
             
-            SearchResponse response = new SearchResponse();
-            response.setQuery(request.getQuery());
-            response.setResults(results);
-            response.setSummary(summaryObj);
-            response.setExecutionTimeMs(executionTime);
+            @Override
+            public String fallback(SearchResponse response) {
+                return llmService.fallbackSummary(query, response.getResults());
+            }
+        };
+    }
+    
+    private Summarizer rootCauseOf(String query) {
+        return new Summarizer() {
+            @Override
+            public String summarize(SearchResponse response) {
+                return llmService.synthesizeRootCause(response.getResults());
+            }
             
-            return ResponseEntity.ok(response);
+            @Override
+            public String fallback(SearchResponse response) {
+                return llmService.fallbackSummary(query, response.getResults());
+            }
+        };
+    }
+    
+    /**
+     * The cached answer for {@code cacheKey}, or a fresh one: {@code search}, then a summary from {@code summarizer}.
+     * Only a summary the model actually produced is cached; after a fallback the next request retries the model,
+     * and keyword-only results from a search whose query embedding failed are not cached either.
+     * The cache generation is read before searching, so an answer computed while ingestion changed the index
+     * is not stored.
+     *
+     * @param ticketKind when not null, the summary is computed asynchronously under a ticket of this kind
+     *                   (see {@link #withTicket}) and {@code summarizer} is not used
+     * @throws StreamClosedException from the summarizer, which means the client went away rather than the model failing
+     */
+    private SearchResponse answer(SearchResultCache.Key cacheKey, SearchRequest request, long startTime,
+                                  Supplier<SearchResponse> search, AsyncSummaryService.Kind ticketKind,
+                                  Summarizer summarizer) {
+        SearchResponse cached = fromCache(cacheKey, request, startTime);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = resultCache.generation();
+        SearchResponse response = search.get();
+        if (ticketKind != null) {
+            return withTicket(response, ticketKind, request.getQuery(), cacheKey, generation, startTime);
+        }
+        summarizer.onResults(response);
+        
+        long summaryStart = System.currentTimeMillis();
+        String summary;
+        boolean summarized;
+        try {
+            summary = summarizer.summarize(response);
+            summarized = true;
+        } catch (StreamClosedException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Error processing root cause search", e);
-            return ResponseEntity.internalServerError().build();
+            logger.warn("LLM summary failed, answering with the extractive summary: {}", e.getMessage());
+            summary = summarizer.fallback(response);
+            summarized = false;
+        }
+        response.getTimings().put("summary", System.currentTimeMillis() - summaryStart);
+        
+        SearchResponse.Summary summaryObj = toSummary(response.getResults(), summary);
+        response.setSummary(summaryObj);
+        response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+        if (summarized && cacheable(response)) {
+            resultCache.put(cacheKey, generation, response.getResults(), summaryObj);
+        }
+        return response;
+    }
+    
+    // Keyword-only results after a failed query embedding are a degraded answer; the next request retries
+    private static boolean cacheable(SearchResponse response) {
+        return response.getQueryEmbedding() != null;
+    }
+    
+    private SearchResponse.Summary toSummary(List<SearchResult> results, String text) {
+        SearchResponse.Summary summary = new SearchResponse.Summary();
+        summary.setSuggestedRootCause(text);
+        summary.setConfidence(determineConfidence(results));
+        summary.setSimilarIncidents(results.size());
+        return summary;
+    }
+    
+    private static SearchResponse withoutSummary(SearchResponse response) {
+        SearchResponse copy = new SearchResponse();
+        copy.setQuery(response.getQuery());
+        copy.setResults(response.getResults());
+        copy.setTimings(response.getTimings());
+        copy.setExecutionTimeMs(response.getExecutionTimeMs());
+        return copy;
+    }
+    
+    private static boolean isAsync(String summaryMode) {
+        return "async".equalsIgnoreCase(summaryMode);
+    }
+    
+    /**
+     * Completes {@code response} with a summary ticket instead of waiting for the LLM, for {@link #answer}.
+     * The finished summary is cached under {@code cacheKey} like a synchronous one.
+     */
+    private SearchResponse withTicket(SearchResponse response, AsyncSummaryService.Kind kind, String query,
+                                      SearchResultCache.Key cacheKey, long generation, long startTime) {
+        List<SearchResult> results = response.getResults();
+        AsyncSummaryService.Ticket ticket = asyncSummaryService.submit(
+                kind, query, results, response.getQueryEmbedding(), generation);
+        
+        SearchResponse.Summary summaryObj = toSummary(results, null);
+        summaryObj.setTicketId(ticket.id());
+        // A coalesced ticket may already be done, and a rejected one has already failed; report it exactly as
+        // GET /summaries/{id} would, so a failure carries the same extractive fallback on both paths
+        SummaryTicketResponse status = asyncSummaryService.status(ticket.id());
+        summaryObj.setStatus(status != null ? status.getStatus() : "PENDING");
+        summaryObj.setSuggestedRootCause(status != null ? status.getSuggestedRootCause() : null);
+        
+        // A failed ticket completes exceptionally, so only the model's summary reaches the cache
+        if (cacheable(response)) {
+            ticket.summary().thenAccept(text -> resultCache.put(cacheKey, generation, results, toSummary(results, text)));
+        }
+        
+        response.setSummary(summaryObj);
+        response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+        return response;
+    }
+    
+    private SearchResponse fromCache(SearchResultCache.Key cacheKey, SearchRequest request, long startTime) {
+        SearchResponse cached = resultCache.get(cacheKey);
+        if (cached == null) {
+            return null;
         }
+        long elapsed = System.currentTimeMillis() - startTime;
+        cached.setQuery(request.getQuery());
+        cached.setTimings(new LinkedHashMap<>(Map.of("cache", elapsed)));
+        cached.setExecutionTimeMs(elapsed);
+        return cached;
     }
     
     private String determineConfidence(List<SearchResult> results) {
@@ -185,8 +508,11 @@ public class SearchController {
             return "Low";
         }
         
+        // Keyword matches that could not be scored say nothing about similarity
         double avgSimilarity = results.stream()
-                .mapToDouble(SearchResult::getSimilarityScore)
+                .map(SearchResult::getSimilarityScore)
+                .filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue)
                 .average()
                 .orElse(0.0);
         
@@ -8,8 +8,9 @@ public class ConfluencePage {
     private String title;
     private String spaceKey;
     private String url;
-    private String body; // HTML content
-    private LocalDateTime lastModified;
+    private String body; // HTML content, null when the listing did not expand it
+    private LocalDateTime lastModified; // UTC
+    private Integer version; // Confluence version number
     private List<String> labels;
     private String status; // current, archived, etc.
     
@@ -27,6 +28,8 @@ public class ConfluencePage {
     public void setBody(String body) { this.body = body; }
     public LocalDateTime getLastModified() { return lastModified; }
     public void setLastModified(LocalDateTime lastModified) { this.lastModified = lastModified; }
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
     public List<String> getLabels() { return labels; }
     public void setLabels(List<String> labels) { this.labels = labels; }
     public String getStatus() { return status; }
@@ -7,6 +7,12 @@ public class SearchRequest {
     private String query;
     private Integer topK;
     private FilterBy filterBy;
+    private Recall recall; // latency/recall trade-off of the vector index scan, default BALANCED
+    
+    /**
+     * FAST favours latency, ACCURATE scans more of the ANN index for better recall
+     */
+    public enum Recall { FAST, BALANCED, ACCURATE }
     
     public SearchRequest() {}
     
@@ -16,6 +22,8 @@ public class SearchRequest {
     public void setTopK(Integer topK) { this.topK = topK; }
     public FilterBy getFilterBy() { return filterBy; }
     public void setFilterBy(FilterBy filterBy) { this.filterBy = filterBy; }
+    public Recall getRecall() { return recall; }
+    public void setRecall(Recall recall) { this.recall = recall; }
     
     public static class FilterBy {
         private List<String> spaceKeys;
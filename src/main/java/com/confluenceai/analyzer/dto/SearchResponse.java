@@ -1,12 +1,18 @@
 package com.confluenceai.analyzer.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
+import java.util.Map;
 
 public class SearchResponse {
     private String query;
     private List<SearchResult> results;
     private Summary summary;
     private Long executionTimeMs;
+    private Map<String, Long> timings; // per-stage wall time in ms; stages that overlap sum to more than the total
+    @JsonIgnore
+    private float[] queryEmbedding; // computed by the search, reused to look up cached LLM answers; null if embedding failed
     
     public SearchResponse() {}
     
@@ -18,11 +24,19 @@ public class SearchResponse {
     public void setSummary(Summary summary) { this.summary = summary; }
     public Long getExecutionTimeMs() { return executionTimeMs; }
     public void setExecutionTimeMs(Long executionTimeMs) { this.executionTimeMs = executionTimeMs; }
+    public Map<String, Long> getTimings() { return timings; }
+    public void setTimings(Map<String, Long> timings) { this.timings = timings; }
+    @JsonIgnore
+    public float[] getQueryEmbedding() { return queryEmbedding; }
+    @JsonIgnore
+    public void setQueryEmbedding(float[] queryEmbedding) { this.queryEmbedding = queryEmbedding; }
     
     public static class Summary {
         private String suggestedRootCause;
         private String confidence; // High, Medium, Low
         private Integer similarIncidents;
+        private String ticketId; // set with summary=async; suggestedRootCause is then fetched by ticket
+        private String status; // PENDING, READY, FAILED; only with summary=async
         
         public Summary() {}
         
@@ -32,5 +46,9 @@ public class SearchResponse {
         public void setConfidence(String confidence) { this.confidence = confidence; }
         public Integer getSimilarIncidents() { return similarIncidents; }
         public void setSimilarIncidents(Integer similarIncidents) { this.similarIncidents = similarIncidents; }
+        public String getTicketId() { return ticketId; }
+        public void setTicketId(String ticketId) { this.ticketId = ticketId; }
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
     }
 }
@@ -5,7 +5,7 @@ public class SearchResult {
     private String title;
     private String content;
     private String confluenceUrl;
-    private Double similarityScore;
+    private Double similarityScore; // null for a keyword match that could not be scored (no query embedding)
     private String chunkType; // SYMPTOMS or ROOT_CAUSE
     private ParsedRcaDto fullRCA;
     
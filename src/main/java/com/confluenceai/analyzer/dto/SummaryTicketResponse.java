@@ -0,0 +1,19 @@
+package com.confluenceai.analyzer.dto;
+
+public class SummaryTicketResponse {
+    private String ticketId;
+    private String status; // PENDING, READY, FAILED
+    private String suggestedRootCause; // set once READY; the extractive fallback when FAILED
+    private String error; // set when FAILED
+    
+    public SummaryTicketResponse() {}
+    
+    public String getTicketId() { return ticketId; }
+    public void setTicketId(String ticketId) { this.ticketId = ticketId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getSuggestedRootCause() { return suggestedRootCause; }
+    public void setSuggestedRootCause(String suggestedRootCause) { this.suggestedRootCause = suggestedRootCause; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -5,7 +5,7 @@ import java.util.UUID;
 
 public class SyncResponse {
     private UUID syncId;
-    private String status; // RUNNING, COMPLETED, FAILED
+    private String status; // RUNNING, COMPLETED, FAILED, CANCELLED
     private String message;
     private LocalDateTime startedAt;
     private LocalDateTime completedAt;
@@ -13,6 +13,9 @@ public class SyncResponse {
     private Integer pagesFetched;
     private Integer pagesProcessed;
     private Integer pagesFailed;
+    private Integer pagesSkipped; // unchanged since the last sync, not re-embedded
+    private Integer embeddingsWritten;
+    private Double embeddingWriteRate; // embedding rows written per second of DB write time
     
     public SyncResponse() {}
     
@@ -34,4 +37,10 @@ public class SyncResponse {
     public void setPagesProcessed(Integer pagesProcessed) { this.pagesProcessed = pagesProcessed; }
     public Integer getPagesFailed() { return pagesFailed; }
     public void setPagesFailed(Integer pagesFailed) { this.pagesFailed = pagesFailed; }
+    public Integer getPagesSkipped() { return pagesSkipped; }
+    public void setPagesSkipped(Integer pagesSkipped) { this.pagesSkipped = pagesSkipped; }
+    public Integer getEmbeddingsWritten() { return embeddingsWritten; }
+    public void setEmbeddingsWritten(Integer embeddingsWritten) { this.embeddingsWritten = embeddingsWritten; }
+    public Double getEmbeddingWriteRate() { return embeddingWriteRate; }
+    public void setEmbeddingWriteRate(Double embeddingWriteRate) { this.embeddingWriteRate = embeddingWriteRate; }
 }
@@ -1,7 +1,10 @@
 package com.confluenceai.analyzer.entity;
 
+import com.confluenceai.analyzer.vector.PgVectorType;
+import com.confluenceai.analyzer.vector.VectorCodec;
 import jakarta.persistence.*;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.Type;
 import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
@@ -35,8 +38,16 @@ public class RcaEmbedding {
     @Column(name = "content", nullable = false, columnDefinition = "TEXT")
     private String content;
     
+    // Denormalised from rca_pages / parsed_rca so search filters apply inside the vector query
+    @Column(name = "space_key", length = 255)
+    private String spaceKey;
+    
+    @Column(name = "incident_date")
+    private LocalDateTime incidentDate;
+    
     @Column(name = "embedding", columnDefinition = "vector(768)")
-    private String embedding; // Stored as string, converted to/from vector in repository
+    @Type(PgVectorType.class)
+    private float[] embedding;
     
     @Column(name = "metadata", columnDefinition = "JSONB")
     @JdbcTypeCode(SqlTypes.JSON)
@@ -50,26 +61,15 @@ public class RcaEmbedding {
     
     public RcaEmbedding() {}
     
-    // Helper method to convert List<Float> to vector string format
+    // Adapters for callers that still work with boxed vectors
     public void setEmbeddingVector(List<Float> vector) {
         if (vector != null && !vector.isEmpty()) {
-            this.embedding = "[" + vector.stream()
-                    .map(f -> String.format("%.6f", f))
-                    .reduce((a, b) -> a + "," + b)
-                    .orElse("") + "]";
+            this.embedding = VectorCodec.toArray(vector);
         }
     }
     
-    // Helper method to convert vector string to List<Float>
     public List<Float> getEmbeddingVector() {
-        if (embedding == null || embedding.isEmpty()) {
-            return List.of();
-        }
-        String clean = embedding.replace("[", "").replace("]", "");
-        return java.util.Arrays.stream(clean.split(","))
-                .map(String::trim)
-                .map(Float::parseFloat)
-                .toList();
+        return embedding == null ? List.of() : VectorCodec.toList(embedding);
     }
     
     @PrePersist
@@ -100,8 +100,12 @@ public class RcaEmbedding {
     public void setChunkType(String chunkType) { this.chunkType = chunkType; }
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
-    public String getEmbedding() { return embedding; }
-    public void setEmbedding(String embedding) { this.embedding = embedding; }
+    public String getSpaceKey() { return spaceKey; }
+    public void setSpaceKey(String spaceKey) { this.spaceKey = spaceKey; }
+    public LocalDateTime getIncidentDate() { return incidentDate; }
+    public void setIncidentDate(LocalDateTime incidentDate) { this.incidentDate = incidentDate; }
+    public float[] getEmbedding() { return embedding; }
+    public void setEmbedding(float[] embedding) { this.embedding = embedding; }
     public Map<String, Object> getMetadata() { return metadata; }
     public void setMetadata(Map<String, Object> metadata) { this.metadata = metadata; }
     public LocalDateTime getCreatedAt() { return createdAt; }
@@ -27,6 +27,15 @@ public class RcaPage {
     @Column(name = "last_modified", nullable = false)
     private LocalDateTime lastModified;
     
+    @Column(name = "content_version")
+    private Integer contentVersion; // Confluence version number that was last embedded
+    
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the storage-format body that was last embedded
+    
+    @Column(name = "embedding_fingerprint", length = 64)
+    private String embeddingFingerprint; // SHA-256 of the chunking and embedding settings that were last used
+    
     @Column(name = "ingested_at")
     private LocalDateTime ingestedAt;
     
@@ -70,6 +79,12 @@ public class RcaPage {
     public void setTags(String[] tags) { this.tags = tags; }
     public LocalDateTime getLastModified() { return lastModified; }
     public void setLastModified(LocalDateTime lastModified) { this.lastModified = lastModified; }
+    public Integer getContentVersion() { return contentVersion; }
+    public void setContentVersion(Integer contentVersion) { this.contentVersion = contentVersion; }
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public String getEmbeddingFingerprint() { return embeddingFingerprint; }
+    public void setEmbeddingFingerprint(String embeddingFingerprint) { this.embeddingFingerprint = embeddingFingerprint; }
     public LocalDateTime getIngestedAt() { return ingestedAt; }
     public void setIngestedAt(LocalDateTime ingestedAt) { this.ingestedAt = ingestedAt; }
     public LocalDateTime getParsedAt() { return parsedAt; }
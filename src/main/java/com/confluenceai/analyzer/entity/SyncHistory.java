@@ -29,6 +29,15 @@ public class SyncHistory {
     @Column(name = "pages_failed")
     private Integer pagesFailed = 0;
     
+    @Column(name = "pages_skipped")
+    private Integer pagesSkipped = 0;
+    
+    @Column(name = "embeddings_written")
+    private Integer embeddingsWritten = 0;
+    
+    @Column(name = "embedding_write_ms")
+    private Long embeddingWriteMs = 0L; // time spent in embedding DB writes, summed across persist workers
+    
     @Column(name = "started_at")
     private LocalDateTime startedAt;
     
@@ -36,7 +45,7 @@ public class SyncHistory {
     private LocalDateTime completedAt;
     
     @Column(name = "status", length = 50)
-    private String status = "RUNNING"; // RUNNING, COMPLETED, FAILED
+    private String status = "RUNNING"; // RUNNING, COMPLETED, FAILED, CANCELLED
     
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
@@ -69,6 +78,12 @@ public class SyncHistory {
     public void setPagesProcessed(Integer pagesProcessed) { this.pagesProcessed = pagesProcessed; }
     public Integer getPagesFailed() { return pagesFailed; }
     public void setPagesFailed(Integer pagesFailed) { this.pagesFailed = pagesFailed; }
+    public Integer getPagesSkipped() { return pagesSkipped; }
+    public void setPagesSkipped(Integer pagesSkipped) { this.pagesSkipped = pagesSkipped; }
+    public Integer getEmbeddingsWritten() { return embeddingsWritten; }
+    public void setEmbeddingsWritten(Integer embeddingsWritten) { this.embeddingsWritten = embeddingsWritten; }
+    public Long getEmbeddingWriteMs() { return embeddingWriteMs; }
+    public void setEmbeddingWriteMs(Long embeddingWriteMs) { this.embeddingWriteMs = embeddingWriteMs; }
     public LocalDateTime getStartedAt() { return startedAt; }
     public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
     public LocalDateTime getCompletedAt() { return completedAt; }
@@ -0,0 +1,45 @@
+package com.confluenceai.analyzer.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-space high-water mark for incremental syncs: the newest Confluence lastModified
+ * timestamp (in UTC, like {@code ConfluencePage.lastModified}) that has been fully ingested for the space.
+ */
+@Entity
+@Table(name = "sync_watermarks")
+public class SyncWatermark {
+    
+    @Id
+    @Column(name = "space_key", length = 255)
+    private String spaceKey;
+    
+    @Column(name = "last_modified", nullable = false)
+    private LocalDateTime lastModified;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public SyncWatermark() {}
+    
+    public SyncWatermark(String spaceKey, LocalDateTime lastModified) {
+        this.spaceKey = spaceKey;
+        this.lastModified = lastModified;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getSpaceKey() { return spaceKey; }
+    public void setSpaceKey(String spaceKey) { this.spaceKey = spaceKey; }
+    public LocalDateTime getLastModified() { return lastModified; }
+    public void setLastModified(LocalDateTime lastModified) { this.lastModified = lastModified; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
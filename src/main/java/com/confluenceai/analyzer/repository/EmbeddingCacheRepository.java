@@ -0,0 +1,72 @@
+package com.confluenceai.analyzer.repository;
+
+import com.confluenceai.analyzer.vector.PgVector;
+import com.confluenceai.analyzer.vector.VectorCodec;
+import org.postgresql.util.PGobject;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent embedding cache keyed by model, dimension and SHA-256 of the embedded text.
+ * Plain JDBC: lookups and writes are set-based and the table has no entity of its own.
+ */
+@Repository
+public class EmbeddingCacheRepository {
+    
+    private static final String SELECT_SQL = """
+        SELECT text_hash, embedding FROM embedding_cache
+        WHERE model = ? AND dimension = ? AND text_hash = ANY(?)
+        """;
+    
+    private static final String INSERT_SQL = """
+        INSERT INTO embedding_cache (model, dimension, text_hash, embedding)
+        VALUES (?, ?, ?, ?)
+        ON CONFLICT (model, dimension, text_hash) DO NOTHING
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public EmbeddingCacheRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /** Returns the cached vectors found for the given text hashes, keyed by hash. */
+    public Map<String, float[]> findAll(String model, int dimension, List<String> textHashes) {
+        Map<String, float[]> found = new HashMap<>();
+        if (textHashes.isEmpty()) {
+            return found;
+        }
+        jdbcTemplate.query(SELECT_SQL, ps -> {
+            ps.setString(1, model);
+            ps.setInt(2, dimension);
+            ps.setArray(3, ps.getConnection().createArrayOf("text", textHashes.toArray()));
+        }, rs -> {
+            Object value = rs.getObject(2);
+            if (value instanceof PgVector vector && !vector.isNull()) {
+                found.put(rs.getString(1), vector.toArray());
+            } else if (value instanceof PGobject object && object.getValue() != null) {
+                found.put(rs.getString(1), VectorCodec.parseText(object.getValue()));
+            }
+        });
+        return found;
+    }
+    
+    /** Stores vectors keyed by text hash; entries that already exist are left untouched. */
+    public void saveAll(String model, int dimension, Map<String, float[]> vectors) {
+        if (vectors.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, float[]>> entries = new ArrayList<>(vectors.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, model);
+            ps.setInt(2, dimension);
+            ps.setString(3, entry.getKey());
+            ps.setObject(4, new PgVector(entry.getValue()));
+        });
+    }
+}
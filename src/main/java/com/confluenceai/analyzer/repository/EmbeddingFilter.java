@@ -0,0 +1,59 @@
+package com.confluenceai.analyzer.repository;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Restrictions applied inside a chunk search, on the columns denormalised onto {@code rca_embeddings}.
+ * Every field is optional; {@code null} (or an empty space list) means no restriction.
+ *
+ * @param from first incident day included
+ * @param to last incident day included
+ */
+public record EmbeddingFilter(String chunkType, List<String> spaceKeys, LocalDate from, LocalDate to) {
+
+    public static final EmbeddingFilter NONE = new EmbeddingFilter(null, null, null, null);
+
+    public EmbeddingFilter {
+        spaceKeys = spaceKeys == null || spaceKeys.isEmpty() ? null : List.copyOf(spaceKeys);
+    }
+
+    /**
+     * Filter for the request's {@code filterBy}, which may be null
+     */
+    public static EmbeddingFilter of(SearchRequest.FilterBy filterBy) {
+        if (filterBy == null) {
+            return NONE;
+        }
+        SearchRequest.DateRange range = filterBy.getDateRange();
+        return new EmbeddingFilter(null, filterBy.getSpaceKeys(),
+                range != null ? range.getFrom() : null, range != null ? range.getTo() : null);
+    }
+
+    public EmbeddingFilter withChunkType(String chunkType) {
+        return new EmbeddingFilter(chunkType, spaceKeys, from, to);
+    }
+
+    public boolean isEmpty() {
+        return chunkType == null && spaceKeys == null && from == null && to == null;
+    }
+
+    /**
+     * In-memory form of the filter, for stores that do not evaluate it in SQL
+     */
+    public boolean matches(String rowChunkType, String rowSpaceKey, LocalDateTime rowIncidentDate) {
+        if (chunkType != null && !chunkType.equals(rowChunkType)) {
+            return false;
+        }
+        if (spaceKeys != null && !spaceKeys.contains(rowSpaceKey)) {
+            return false;
+        }
+        if (from != null && (rowIncidentDate == null || rowIncidentDate.toLocalDate().isBefore(from))) {
+            return false;
+        }
+        return to == null || (rowIncidentDate != null && !rowIncidentDate.toLocalDate().isAfter(to));
+    }
+}
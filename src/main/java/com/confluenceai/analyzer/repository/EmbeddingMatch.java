@@ -0,0 +1,23 @@
+package com.confluenceai.analyzer.repository;
+
+import java.util.UUID;
+
+/**
+ * Projection returned by the vector search queries: just the columns needed to build a result.
+ * Column aliases in the queries are quoted so they match these property names exactly.
+ */
+public interface EmbeddingMatch {
+    
+    UUID getId();
+    
+    String getPageId();
+    
+    String getChunkType();
+    
+    Integer getChunkIndex();
+    
+    String getContent();
+    
+    /** Cosine similarity between the chunk and the query vector */
+    Double getScore();
+}
@@ -4,6 +4,8 @@ import com.confluenceai.analyzer.entity.ParsedRca;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,5 +14,7 @@ public interface ParsedRcaRepository extends JpaRepository<ParsedRca, UUID> {
     
     Optional<ParsedRca> findByPageId(String pageId);
     
+    List<ParsedRca> findByPageIdIn(Collection<String> pageIds);
+    
     void deleteByPageId(String pageId);
 }
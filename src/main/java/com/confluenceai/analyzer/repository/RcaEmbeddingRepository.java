@@ -12,86 +12,36 @@ import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface RcaEmbeddingRepository extends JpaRepository<RcaEmbedding, UUID> {
+public interface RcaEmbeddingRepository extends JpaRepository<RcaEmbedding, UUID>, RcaEmbeddingRepositoryCustom {
     
     List<RcaEmbedding> findByPageId(String pageId);
     
     List<RcaEmbedding> findByPageIdAndChunkType(String pageId, String chunkType);
     
+    // Bulk delete in the caller's transaction (derived deleteBy would load and remove each entity)
     @Modifying
-    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
-    void deleteByPageId(String pageId);
+    @Query("DELETE FROM RcaEmbedding e WHERE e.pageId = :pageId")
+    int deleteByPageId(@Param("pageId") String pageId);
     
-    // Native insert with proper vector casting
+    // Keeps the denormalised filter column in step when a page moves without being re-embedded
+    @Transactional
     @Modifying
-    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
-    @Query(value = """
-        INSERT INTO rca_embeddings (id, page_id, chunk_index, chunk_type, content, embedding, created_at, updated_at)
-        VALUES (:id, :pageId, :chunkIndex, :chunkType, :content, CAST(:embedding AS vector), :createdAt, :updatedAt)
-        """, nativeQuery = true)
-    void insertWithVector(
-        @Param("id") UUID id,
-        @Param("pageId") String pageId,
-        @Param("chunkIndex") Integer chunkIndex,
-        @Param("chunkType") String chunkType,
-        @Param("content") String content,
-        @Param("embedding") String embedding,
-        @Param("createdAt") java.time.LocalDateTime createdAt,
-        @Param("updatedAt") java.time.LocalDateTime updatedAt
-    );
+    @Query("UPDATE RcaEmbedding e SET e.spaceKey = :spaceKey, e.updatedAt = CURRENT_TIMESTAMP WHERE e.pageId = :pageId")
+    int updateSpaceKey(@Param("pageId") String pageId, @Param("spaceKey") String spaceKey);
     
     // Vector similarity search using cosine distance
     // Note: This uses native SQL because JPA doesn't support vector operations directly
     @Query(value = """
-        SELECT e.*, 1 - (e.embedding <=> CAST(:queryVector AS vector)) AS similarity
-        FROM rca_embeddings e
-        WHERE e.embedding <=> CAST(:queryVector AS vector) < :maxDistance
-        ORDER BY e.embedding <=> CAST(:queryVector AS vector)
-        LIMIT :limit
-        """, nativeQuery = true)
-    List<Object[]> findSimilarEmbeddings(
-        @Param("queryVector") String queryVector,
-        @Param("maxDistance") double maxDistance,
-        @Param("limit") int limit
-    );
-    
-    // Vector similarity search with metadata filtering
-    @Query(value = """
-        SELECT e.*, 1 - (e.embedding <=> CAST(:queryVector AS vector)) AS similarity
+        SELECT e.id AS "id", e.page_id AS "pageId", e.chunk_type AS "chunkType",
+               e.chunk_index AS "chunkIndex", e.content AS "content",
+               1 - (e.embedding <=> CAST(:queryVector AS vector)) AS "score"
         FROM rca_embeddings e
         WHERE e.embedding <=> CAST(:queryVector AS vector) < :maxDistance
-        AND e.chunk_type = :chunkType
-        AND (:spaceKey IS NULL OR e.page_id IN (
-            SELECT page_id FROM rca_pages WHERE space_key = :spaceKey
-        ))
         ORDER BY e.embedding <=> CAST(:queryVector AS vector)
         LIMIT :limit
         """, nativeQuery = true)
-    List<Object[]> findSimilarEmbeddingsWithFilters(
-        @Param("queryVector") String queryVector,
-        @Param("maxDistance") double maxDistance,
-        @Param("chunkType") String chunkType,
-        @Param("spaceKey") String spaceKey,
-        @Param("limit") int limit
-    );
-    
-    // Hybrid search: combines vector similarity with keyword matching
-    // Boosts results that contain the search keywords
-    @Query(value = """
-        SELECT e.*, 
-               (1 - (e.embedding <=> CAST(:queryVector AS vector))) AS vector_similarity,
-               CASE WHEN LOWER(e.content) LIKE LOWER(CONCAT('%', :keyword, '%')) THEN 0.3 ELSE 0.0 END AS keyword_boost,
-               (1 - (e.embedding <=> CAST(:queryVector AS vector))) + 
-               CASE WHEN LOWER(e.content) LIKE LOWER(CONCAT('%', :keyword, '%')) THEN 0.3 ELSE 0.0 END AS combined_score
-        FROM rca_embeddings e
-        WHERE e.embedding <=> CAST(:queryVector AS vector) < :maxDistance
-           OR LOWER(e.content) LIKE LOWER(CONCAT('%', :keyword, '%'))
-        ORDER BY combined_score DESC
-        LIMIT :limit
-        """, nativeQuery = true)
-    List<Object[]> findHybridSearch(
+    List<EmbeddingMatch> findSimilarEmbeddings(
         @Param("queryVector") String queryVector,
-        @Param("keyword") String keyword,
         @Param("maxDistance") double maxDistance,
         @Param("limit") int limit
     );
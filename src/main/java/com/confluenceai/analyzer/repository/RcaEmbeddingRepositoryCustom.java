@@ -0,0 +1,41 @@
+package com.confluenceai.analyzer.repository;
+
+import com.confluenceai.analyzer.entity.RcaEmbedding;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Embedding operations that bypass the JPA persistence context: bulk writes, and searches
+ * whose SQL depends on configuration.
+ */
+public interface RcaEmbeddingRepositoryCustom {
+    
+    /** Insert all rows with a single JDBC batch in the caller's transaction. Returns the number of rows written. */
+    int batchInsert(List<RcaEmbedding> embeddings);
+    
+    /**
+     * Nearest chunks with the filter evaluated inside the index scan. The inner query takes
+     * {@code shortList} rows ordered by the (possibly quantized) distance, the outer query re-ranks them
+     * by exact cosine distance on the full-precision column.
+     *
+     * @param quantization {@code none}, {@code halfvec} or {@code binary}, matching the index expression
+     * @param dimension dimension the quantized index expression casts to
+     */
+    List<EmbeddingMatch> findNearest(String queryVector, String quantization, int dimension,
+                                     EmbeddingFilter filter, int shortList, int limit);
+    
+    /**
+     * Full-text candidates for hybrid search, best {@code ts_rank_cd} first, with the same filter.
+     * Needs no query vector, so it can run while the query is still being embedded; the returned
+     * matches carry no score (see {@link #scoreChunks}).
+     */
+    List<EmbeddingMatch> findKeywordMatches(String tsQuery, EmbeddingFilter filter, int limit);
+    
+    /**
+     * Cosine similarity between {@code queryVector} and each of the given chunks
+     */
+    Map<UUID, Double> scoreChunks(String queryVector, Collection<UUID> ids);
+}
@@ -0,0 +1,185 @@
+package com.confluenceai.analyzer.repository;
+
+import com.confluenceai.analyzer.entity.RcaEmbedding;
+import com.confluenceai.analyzer.vector.PgVector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC batch insert for embedding rows.
+ * With {@code reWriteBatchedInserts}, which {@link com.confluenceai.analyzer.config.DataSourceConfig} sets on
+ * the PostgreSQL driver, each batch becomes multi-row INSERT statements, so a page costs one round trip.
+ *
+ * <p>Also holds the chunk searches whose SQL depends on the request: the ORDER BY expression follows the
+ * index quantization and the WHERE clause the optional filters, so they cannot be static {@code @Query}s.
+ */
+public class RcaEmbeddingRepositoryCustomImpl implements RcaEmbeddingRepositoryCustom {
+    
+    private static final String INSERT_SQL = """
+        INSERT INTO rca_embeddings (id, page_id, chunk_index, chunk_type, content, space_key, incident_date,
+                                    embedding, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+    
+    // The inner ORDER BY ... LIMIT walks the vector index (quantized or not) with the filters applied
+    // during the scan; the outer ORDER BY re-ranks the short list exactly, which also restores the
+    // order that a relaxed iterative index scan does not guarantee
+    private static final String NEAREST_SQL = """
+        SELECT c.id, c.page_id, c.chunk_type, c.chunk_index, c.content,
+               1 - (c.embedding <=> CAST(? AS vector)) AS score
+        FROM (
+            SELECT e.id, e.page_id, e.chunk_type, e.chunk_index, e.content, e.embedding
+            FROM rca_embeddings e
+            WHERE e.embedding IS NOT NULL%s
+            ORDER BY %s
+            LIMIT ?
+        ) c
+        ORDER BY c.embedding <=> CAST(? AS vector)
+        LIMIT ?
+        """;
+    
+    // GIN-indexed full-text match ranked by ts_rank_cd; scored later, once the query vector exists
+    private static final String KEYWORD_SQL = """
+        SELECT e.id, e.page_id, e.chunk_type, e.chunk_index, e.content, NULL::float8 AS score
+        FROM rca_embeddings e
+        WHERE e.content_tsv @@ to_tsquery('english', ?)%s
+        ORDER BY ts_rank_cd(e.content_tsv, to_tsquery('english', ?)) DESC
+        LIMIT ?
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    
+    public RcaEmbeddingRepositoryCustomImpl(
+            JdbcTemplate jdbcTemplate,
+            @Value("${ingestion.embedding-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    @Override
+    public int batchInsert(List<RcaEmbedding> embeddings) {
+        if (embeddings.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, embeddings, batchSize, (ps, e) -> {
+            LocalDateTime now = LocalDateTime.now();
+            ps.setObject(1, e.getId());
+            ps.setString(2, e.getPageId());
+            ps.setInt(3, e.getChunkIndex());
+            ps.setString(4, e.getChunkType());
+            ps.setString(5, e.getContent());
+            ps.setString(6, e.getSpaceKey());
+            ps.setTimestamp(7, e.getIncidentDate() != null ? Timestamp.valueOf(e.getIncidentDate()) : null);
+            ps.setObject(8, new PgVector(e.getEmbedding()));
+            ps.setTimestamp(9, Timestamp.valueOf(e.getCreatedAt() != null ? e.getCreatedAt() : now));
+            ps.setTimestamp(10, Timestamp.valueOf(e.getUpdatedAt() != null ? e.getUpdatedAt() : now));
+        });
+        return embeddings.size();
+    }
+    
+    @Override
+    public List<EmbeddingMatch> findNearest(String queryVector, String quantization, int dimension,
+                                            EmbeddingFilter filter, int shortList, int limit) {
+        String order = switch (quantization) {
+            case "halfvec" -> "e.embedding::halfvec(" + dimension + ") <=> CAST(? AS halfvec(" + dimension + "))";
+            case "binary" -> "binary_quantize(e.embedding)::bit(" + dimension + ") <~> binary_quantize(CAST(? AS vector(" + dimension + ")))";
+            default -> "e.embedding <=> CAST(? AS vector)";
+        };
+        List<Object> args = new ArrayList<>();
+        args.add(queryVector);
+        String where = filterClause(filter, args);
+        args.add(queryVector);
+        args.add(Math.max(shortList, limit));
+        args.add(queryVector);
+        args.add(limit);
+        return query(NEAREST_SQL.formatted(where, order), args);
+    }
+    
+    @Override
+    public List<EmbeddingMatch> findKeywordMatches(String tsQuery, EmbeddingFilter filter, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(tsQuery);
+        String where = filterClause(filter, args);
+        args.add(tsQuery);
+        args.add(limit);
+        return query(KEYWORD_SQL.formatted(where), args);
+    }
+    
+    @Override
+    public Map<UUID, Double> scoreChunks(String queryVector, Collection<UUID> ids) {
+        Map<UUID, Double> scores = new HashMap<>();
+        if (ids.isEmpty()) {
+            return scores;
+        }
+        jdbcTemplate.query("SELECT id, 1 - (embedding <=> CAST(? AS vector)) AS score FROM rca_embeddings WHERE id = ANY(?)",
+                ps -> {
+                    ps.setString(1, queryVector);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+                },
+                rs -> {
+                    scores.put(rs.getObject("id", UUID.class), rs.getObject("score", Double.class));
+                });
+        return scores;
+    }
+    
+    // Appends " AND ..." conditions for the set filter fields and their bind values
+    private static String filterClause(EmbeddingFilter filter, List<Object> args) {
+        StringBuilder where = new StringBuilder();
+        if (filter.chunkType() != null) {
+            where.append(" AND e.chunk_type = ?");
+            args.add(filter.chunkType());
+        }
+        if (filter.spaceKeys() != null) {
+            where.append(" AND e.space_key = ANY(?)");
+            args.add(filter.spaceKeys().toArray(new String[0]));
+        }
+        if (filter.from() != null) {
+            where.append(" AND e.incident_date >= ?");
+            args.add(Timestamp.valueOf(filter.from().atStartOfDay()));
+        }
+        if (filter.to() != null) {
+            where.append(" AND e.incident_date < ?");
+            args.add(Timestamp.valueOf(filter.to().plusDays(1).atStartOfDay()));
+        }
+        return where.toString();
+    }
+    
+    private List<EmbeddingMatch> query(String sql, List<Object> args) {
+        return jdbcTemplate.query(sql, ps -> {
+            for (int i = 0; i < args.size(); i++) {
+                Object arg = args.get(i);
+                if (arg instanceof String[] values) {
+                    ps.setArray(i + 1, ps.getConnection().createArrayOf("varchar", values));
+                } else {
+                    ps.setObject(i + 1, arg);
+                }
+            }
+        }, (rs, rowNum) -> new Match(
+                rs.getObject("id", UUID.class),
+                rs.getString("page_id"),
+                rs.getString("chunk_type"),
+                rs.getInt("chunk_index"),
+                rs.getString("content"),
+                rs.getObject("score", Double.class)));
+    }
+    
+    private record Match(UUID id, String pageId, String chunkType, Integer chunkIndex, String content, Double score)
+            implements EmbeddingMatch {
+        @Override public UUID getId() { return id; }
+        @Override public String getPageId() { return pageId; }
+        @Override public String getChunkType() { return chunkType; }
+        @Override public Integer getChunkIndex() { return chunkIndex; }
+        @Override public String getContent() { return content; }
+        @Override public Double getScore() { return score; }
+    }
+}
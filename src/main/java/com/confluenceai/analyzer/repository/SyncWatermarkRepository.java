@@ -0,0 +1,9 @@
+package com.confluenceai.analyzer.repository;
+
+import com.confluenceai.analyzer.entity.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, String> {
+}
@@ -4,13 +4,28 @@ import com.confluenceai.analyzer.dto.ConfluencePage;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface ConfluenceService {
     
     /**
      * Fetch RCA pages from specified Confluence spaces
      */
-    List<ConfluencePage> fetchRCAPages(String spaceKey, List<String> tags);
+    default List<ConfluencePage> fetchRCAPages(String spaceKey, List<String> tags) {
+        return fetchRCAPages(spaceKey, tags, true);
+    }
+    
+    /**
+     * Fetch RCA pages, optionally without bodies (metadata and version only; body is null)
+     */
+    List<ConfluencePage> fetchRCAPages(String spaceKey, List<String> tags, boolean includeBody);
+    
+    /**
+     * Stream RCA pages to the consumer one results page at a time, without materialising the space.
+     * The consumer runs after each results page has been read and its response closed, so it may block.
+     * The consumer returns false to stop the listing early. Listing failures are thrown.
+     */
+    void streamRCAPages(String spaceKey, List<String> tags, boolean includeBody, Predicate<ConfluencePage> consumer);
     
     /**
      * Fetch a specific page by ID
@@ -20,7 +35,22 @@ public interface ConfluenceService {
     /**
      * Fetch pages modified since a given timestamp
      */
-    List<ConfluencePage> fetchModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys, List<String> tags);
+    default List<ConfluencePage> fetchModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys, List<String> tags) {
+        return fetchModifiedPagesSince(lastSync, spaceKeys, tags, true);
+    }
+    
+    /**
+     * Fetch pages modified since a given UTC timestamp using a server-side CQL search,
+     * optionally without bodies (body is null)
+     */
+    List<ConfluencePage> fetchModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys,
+                                                 List<String> tags, boolean includeBody);
+    
+    /**
+     * Streaming variant of {@link #fetchModifiedPagesSince}; the consumer returns false to stop early
+     */
+    void streamModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys, List<String> tags,
+                                  boolean includeBody, Predicate<ConfluencePage> consumer);
     
     /**
      * Authenticate with Confluence API
@@ -1,21 +1,47 @@
 package com.confluenceai.analyzer.service;
 
+import com.confluenceai.analyzer.vector.VectorCodec;
+
 import java.util.List;
 
 public interface EmbeddingService {
     
+    /**
+     * Generate embedding for a single search query as a primitive vector (empty array on failure).
+     * Bounded by a short deadline and kept apart from bulk embedding, so it may fail where {@link #embedAll} would wait.
+     */
+    float[] embed(String text);
+    
+    /**
+     * Generate embeddings for multiple texts (batch processing), one vector per input in order
+     */
+    List<float[]> embedAll(List<String> texts);
+    
     /**
      * Generate embedding for a single text
+     * @deprecated boxed adapter over {@link #embed(String)}
      */
-    List<Float> generateEmbedding(String text);
+    @Deprecated
+    default List<Float> generateEmbedding(String text) {
+        return VectorCodec.toList(embed(text));
+    }
     
     /**
      * Generate embeddings for multiple texts (batch processing)
+     * @deprecated boxed adapter over {@link #embedAll(List)}
      */
-    List<List<Float>> generateEmbeddings(List<String> texts);
+    @Deprecated
+    default List<List<Float>> generateEmbeddings(List<String> texts) {
+        return embedAll(texts).stream().map(VectorCodec::toList).toList();
+    }
     
     /**
      * Get the dimension of embeddings
      */
     int getEmbeddingDimension();
+    
+    /**
+     * Get the provider model name; vectors from different models are not comparable
+     */
+    String getModelName();
 }
@@ -12,6 +12,11 @@ public interface IngestionService {
      */
     SyncResponse startSync(SyncRequest request);
     
+    /**
+     * Cancel a queued or running sync
+     */
+    SyncResponse cancelSync(UUID syncId);
+    
     /**
      * Get sync status
      */
@@ -3,16 +3,54 @@ package com.confluenceai.analyzer.service;
 import com.confluenceai.analyzer.dto.SearchResult;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface LLMService {
     
     /**
-     * Generate summary from retrieved RCAs
+     * Generate summary from retrieved RCAs.
+     * Throws if the model is unavailable; callers then answer with {@link #fallbackSummary}.
      */
     String generateSummary(String userQuery, List<SearchResult> results);
     
     /**
-     * Synthesize root cause from multiple RCAs
+     * As {@link #generateSummary(String, List)}, with the query embedding the search computed, which lets an
+     * implementation reuse the answer to a near-identical question over the same results.
+     * {@code queryEmbedding} may be null.
+     */
+    default String generateSummary(String userQuery, List<SearchResult> results, float[] queryEmbedding) {
+        return generateSummary(userQuery, results);
+    }
+    
+    /**
+     * Generate the same summary as {@link #generateSummary(String, List)}, handing each text fragment to {@code onFragment}
+     * as the model produces it. Blocks until the completion ends; an exception thrown by {@code onFragment}
+     * aborts the completion and is rethrown.
+     *
+     * @return the complete summary
+     */
+    default String streamSummary(String userQuery, List<SearchResult> results, Consumer<String> onFragment) {
+        return streamSummary(userQuery, results, null, onFragment);
+    }
+    
+    /**
+     * As {@link #streamSummary(String, List, Consumer)}; see {@link #generateSummary(String, List, float[])}
+     * for {@code queryEmbedding}. A reused answer is handed over as a single fragment.
+     */
+    default String streamSummary(String userQuery, List<SearchResult> results, float[] queryEmbedding,
+                                 Consumer<String> onFragment) {
+        String summary = generateSummary(userQuery, results, queryEmbedding);
+        onFragment.accept(summary);
+        return summary;
+    }
+    
+    /**
+     * Synthesize root cause from multiple RCAs. Throws if the model is unavailable.
      */
     String synthesizeRootCause(List<SearchResult> results);
+    
+    /**
+     * Summary extracted from the results without calling the model, for when it is unavailable
+     */
+    String fallbackSummary(String userQuery, List<SearchResult> results);
 }
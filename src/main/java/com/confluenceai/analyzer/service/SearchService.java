@@ -1,5 +1,7 @@
 package com.confluenceai.analyzer.service;
 
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.dto.SearchResponse;
 import com.confluenceai.analyzer.dto.SearchResult;
 
 import java.util.List;
@@ -9,15 +11,80 @@ public interface SearchService {
     /**
      * Search for similar RCAs based on query
      */
-    List<SearchResult> searchSimilarRCAs(String query, int topK, String userId);
+    default List<SearchResult> searchSimilarRCAs(String query, int topK, String userId) {
+        return searchSimilarRCAs(query, topK, userId, SearchRequest.Recall.BALANCED);
+    }
+    
+    /**
+     * Search for similar RCAs, trading vector index recall against latency
+     */
+    default List<SearchResult> searchSimilarRCAs(String query, int topK, String userId, SearchRequest.Recall recall) {
+        return searchSimilarRCAs(query, topK, userId, null, recall);
+    }
+    
+    /**
+     * Search for similar RCAs restricted to the given spaces and incident date range
+     * @param filterBy optional filters, applied inside the vector and keyword queries
+     */
+    default List<SearchResult> searchSimilarRCAs(String query, int topK, String userId,
+                                                 SearchRequest.FilterBy filterBy, SearchRequest.Recall recall) {
+        return search(query, topK, userId, filterBy, recall).getResults();
+    }
+    
+    /**
+     * Hybrid search returning a partial response: query, results and per-stage timings.
+     * The caller adds the summary and the total execution time.
+     */
+    SearchResponse search(String query, int topK, String userId,
+                          SearchRequest.FilterBy filterBy, SearchRequest.Recall recall);
     
     /**
      * Search by symptoms
      */
-    List<SearchResult> searchBySymptoms(String symptoms, int topK);
+    default List<SearchResult> searchBySymptoms(String symptoms, int topK) {
+        return searchBySymptoms(symptoms, topK, SearchRequest.Recall.BALANCED);
+    }
+    
+    /**
+     * Search by symptoms with a recall hint
+     */
+    default List<SearchResult> searchBySymptoms(String symptoms, int topK, SearchRequest.Recall recall) {
+        return searchBySymptoms(symptoms, topK, null, recall);
+    }
+    
+    /**
+     * Search by symptoms with filters and a recall hint
+     */
+    default List<SearchResult> searchBySymptoms(String symptoms, int topK, SearchRequest.FilterBy filterBy,
+                                                SearchRequest.Recall recall) {
+        return search(symptoms, topK, null, filterBy, recall).getResults();
+    }
     
     /**
      * Search by root cause
      */
-    List<SearchResult> searchByRootCause(String rootCause, int topK);
+    default List<SearchResult> searchByRootCause(String rootCause, int topK) {
+        return searchByRootCause(rootCause, topK, SearchRequest.Recall.BALANCED);
+    }
+    
+    /**
+     * Search by root cause with a recall hint
+     */
+    default List<SearchResult> searchByRootCause(String rootCause, int topK, SearchRequest.Recall recall) {
+        return searchByRootCause(rootCause, topK, null, recall);
+    }
+    
+    /**
+     * Search by root cause with filters and a recall hint
+     */
+    default List<SearchResult> searchByRootCause(String rootCause, int topK, SearchRequest.FilterBy filterBy,
+                                                 SearchRequest.Recall recall) {
+        return searchRootCause(rootCause, topK, filterBy, recall).getResults();
+    }
+    
+    /**
+     * Root cause search over ROOT_CAUSE chunks only, returning a partial response with per-stage timings
+     */
+    SearchResponse searchRootCause(String rootCause, int topK, SearchRequest.FilterBy filterBy,
+                                   SearchRequest.Recall recall);
 }
@@ -0,0 +1,34 @@
+package com.confluenceai.analyzer.service;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.repository.EmbeddingFilter;
+import com.confluenceai.analyzer.repository.EmbeddingMatch;
+
+import java.util.List;
+
+/**
+ * Nearest-neighbour lookup over chunk embeddings. PostgreSQL ({@code rca_embeddings}) is always the
+ * system of record; implementations differ only in where the ANN search runs.
+ */
+public interface VectorStore {
+    
+    /**
+     * Find the chunks most similar to {@code queryVector} that pass {@code filter}, best first.
+     * The filter is applied during the scan, so up to {@code limit} matching chunks are returned
+     * however selective it is.
+     * @param recall latency/recall hint for the ANN scan, null for BALANCED
+     */
+    List<EmbeddingMatch> findNearest(float[] queryVector, int limit, EmbeddingFilter filter, SearchRequest.Recall recall);
+    
+    /**
+     * Short name reported in logs and metrics
+     */
+    String getName();
+    
+    /**
+     * Bytes the ANN index this store is currently searching occupies on disk, for benchmarks; 0 if unknown
+     */
+    default long indexSizeBytes() {
+        return 0;
+    }
+}
@@ -0,0 +1,197 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.config.SearchExecutorConfig;
+import com.confluenceai.analyzer.dto.SearchResult;
+import com.confluenceai.analyzer.dto.SummaryTicketResponse;
+import com.confluenceai.analyzer.service.LLMService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Produces LLM summaries off the request path for {@code summary=async} searches.
+ *
+ * <p>Each submission returns a ticket whose summary is computed on the bounded summary pool. Submissions
+ * with the same kind, query and ordered result pages against the same index generation share one ticket,
+ * so a burst of identical questions during an incident costs one completion. Tickets are kept for
+ * {@code llm.summary.ticket-ttl-seconds} after submission and at most {@code llm.summary.max-tickets}
+ * are retained, oldest dropped first.
+ */
+@Component
+public class AsyncSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSummaryService.class);
+
+    public enum Kind { SUMMARY, ROOT_CAUSE }
+
+    /**
+     * What a summary depends on; requests with equal keys are answered by one completion.
+     * {@code query} is null for root cause synthesis, which does not use it.
+     */
+    public record Key(Kind kind, String query, List<String> pageIds, long generation) {}
+
+    public record Ticket(String id, Key key, long createdAtMillis, CompletableFuture<String> summary) {}
+
+    /**
+     * Failure of a ticket, carrying the extractive summary to show instead
+     */
+    private static class SummaryFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        private final String fallback;
+
+        SummaryFailedException(String message, String fallback) {
+            super(message);
+            this.fallback = fallback;
+        }
+    }
+
+    private final LLMService llmService;
+    private final ThreadPoolTaskExecutor executor;
+    private final long ttlMillis;
+    private final Map<String, Ticket> tickets;
+    private final Map<Key, Ticket> ticketsByKey = new HashMap<>();
+    private final Counter submitted;
+    private final Counter coalesced;
+    private final Counter rejected;
+
+    public AsyncSummaryService(
+            LLMService llmService,
+            @Qualifier(SearchExecutorConfig.SUMMARY_EXECUTOR) ThreadPoolTaskExecutor executor,
+            MeterRegistry meterRegistry,
+            @Value("${llm.summary.max-tickets:1000}") int maxTickets,
+            @Value("${llm.summary.ticket-ttl-seconds:600}") long ttlSeconds) {
+        this.llmService = llmService;
+        this.executor = executor;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.tickets = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ticket> eldest) {
+                if (size() <= maxTickets) {
+                    return false;
+                }
+                ticketsByKey.remove(eldest.getValue().key(), eldest.getValue());
+                return true;
+            }
+        };
+        this.submitted = ticketCounter(meterRegistry, "submitted");
+        this.coalesced = ticketCounter(meterRegistry, "coalesced");
+        this.rejected = ticketCounter(meterRegistry, "rejected");
+    }
+
+    /**
+     * Ticket for the summary of {@code results}, reusing a live ticket for the same summary if there is one.
+     *
+     * @param queryEmbedding query vector from the search, for the LLM answer cache; may be null
+     * @param generation search result cache generation the results were computed against
+     */
+    public Ticket submit(Kind kind, String query, List<SearchResult> results, float[] queryEmbedding, long generation) {
+        Key key = new Key(kind, kind == Kind.SUMMARY ? SearchResultCache.normalize(query) : null,
+                results.stream().map(SearchResult::getPageId).toList(), generation);
+        Ticket ticket;
+        synchronized (tickets) {
+            Ticket existing = ticketsByKey.get(key);
+            if (existing != null && isLive(existing) && !existing.summary().isCompletedExceptionally()) {
+                coalesced.increment();
+                return existing;
+            }
+            ticket = new Ticket(UUID.randomUUID().toString(), key, System.currentTimeMillis(), new CompletableFuture<>());
+            tickets.put(ticket.id(), ticket);
+            ticketsByKey.put(key, ticket);
+        }
+
+        try {
+            executor.execute(() -> run(ticket, query, results, queryEmbedding));
+            submitted.increment();
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            logger.warn("Summary queue full, rejecting ticket {}", ticket.id());
+            ticket.summary().completeExceptionally(new SummaryFailedException(
+                    "Summary queue is full, retry later", llmService.fallbackSummary(query, results)));
+        }
+        return ticket;
+    }
+
+    /**
+     * Current state of a ticket, or null if it is unknown or has expired
+     */
+    public SummaryTicketResponse status(String ticketId) {
+        Ticket ticket;
+        synchronized (tickets) {
+            ticket = tickets.get(ticketId);
+            if (ticket != null && !isLive(ticket)) {
+                tickets.remove(ticketId);
+                ticketsByKey.remove(ticket.key(), ticket);
+                ticket = null;
+            }
+        }
+        if (ticket == null) {
+            return null;
+        }
+
+        SummaryTicketResponse response = new SummaryTicketResponse();
+        response.setTicketId(ticket.id());
+        CompletableFuture<String> summary = ticket.summary();
+        if (!summary.isDone()) {
+            response.setStatus("PENDING");
+        } else if (summary.isCompletedExceptionally()) {
+            response.setStatus("FAILED");
+            Throwable failure = failure(summary);
+            response.setError(failure.getMessage() != null ? failure.getMessage() : "Summary generation failed");
+            if (failure instanceof SummaryFailedException failed) {
+                response.setSuggestedRootCause(failed.fallback);
+            }
+        } else {
+            response.setStatus("READY");
+            response.setSuggestedRootCause(summary.join());
+        }
+        return response;
+    }
+
+    private void run(Ticket ticket, String query, List<SearchResult> results, float[] queryEmbedding) {
+        try {
+            String summary = ticket.key().kind() == Kind.ROOT_CAUSE
+                    ? llmService.synthesizeRootCause(results)
+                    : llmService.generateSummary(query, results, queryEmbedding);
+            ticket.summary().complete(summary);
+        } catch (Exception e) {
+            logger.warn("Async summary {} failed: {}", ticket.id(), e.getMessage());
+            ticket.summary().completeExceptionally(
+                    new SummaryFailedException(e.getMessage(), llmService.fallbackSummary(query, results)));
+        }
+    }
+
+    private boolean isLive(Ticket ticket) {
+        return System.currentTimeMillis() - ticket.createdAtMillis() < ttlMillis;
+    }
+
+    private static Throwable failure(CompletableFuture<String> summary) {
+        try {
+            summary.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
+    private static Counter ticketCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("llm.summary.tickets")
+                .description("Asynchronous summary submissions by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,197 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.repository.EmbeddingCacheRepository;
+import com.confluenceai.analyzer.service.EmbeddingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caching decorator in front of the configured embedding provider.
+ * Lookups go through an in-memory LRU, then the {@code embedding_cache} table, and only
+ * texts missing from both are sent to the provider. Keys are model + dimension + SHA-256
+ * of the text, so unchanged chunks and repeated queries are never embedded twice.
+ */
+@Service
+@Primary
+public class CachingEmbeddingService implements EmbeddingService {
+    
+    /** Qualifier carried by the provider implementations this service wraps */
+    public static final String PROVIDER = "embeddingProvider";
+    
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingService.class);
+    
+    private final EmbeddingService delegate;
+    private final EmbeddingCacheRepository cacheRepository;
+    private final boolean persistent;
+    private final Map<String, float[]> memory;
+    private final Counter memoryHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+    
+    public CachingEmbeddingService(
+            @Qualifier(PROVIDER) EmbeddingService delegate,
+            EmbeddingCacheRepository cacheRepository,
+            MeterRegistry meterRegistry,
+            @Value("${embedding.cache.memory-size:10000}") int memorySize,
+            @Value("${embedding.cache.persistent:true}") boolean persistent) {
+        this.delegate = delegate;
+        this.cacheRepository = cacheRepository;
+        this.persistent = persistent;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > memorySize;
+            }
+        };
+        this.memoryHits = lookupCounter(meterRegistry, "memory", "hit");
+        this.persistentHits = lookupCounter(meterRegistry, "persistent", "hit");
+        this.misses = lookupCounter(meterRegistry, "provider", "miss");
+        logger.info("Embedding cache initialized - Model: {}, Memory entries: {}, Persistent: {}",
+                delegate.getModelName(), memorySize, persistent);
+    }
+    
+    @Override
+    public float[] embed(String text) {
+        // Single lookups keep the provider's embed() contract (empty vector on failure)
+        return resolve(List.of(text), missing -> List.of(delegate.embed(missing.get(0)))).get(0);
+    }
+    
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        return resolve(texts, delegate::embedAll);
+    }
+    
+    private List<float[]> resolve(List<String> texts, Function<List<String>, List<float[]>> provider) {
+        List<String> keys = texts.stream().map(this::cacheKey).toList();
+        Map<String, float[]> resolved = new LinkedHashMap<>();
+        
+        // 1. In-memory tier
+        synchronized (memory) {
+            for (String key : keys) {
+                float[] cached = memory.get(key);
+                if (cached != null) {
+                    resolved.put(key, cached);
+                }
+            }
+        }
+        memoryHits.increment(countOf(keys, resolved));
+        
+        // 2. Persistent tier, one query for all remaining distinct keys
+        List<String> pending = keys.stream().distinct().filter(key -> !resolved.containsKey(key)).toList();
+        if (persistent && !pending.isEmpty()) {
+            Map<String, float[]> stored = findPersistent(pending);
+            rememberAll(stored);
+            resolved.putAll(stored);
+            persistentHits.increment(countOf(keys, stored));
+        }
+        
+        // 3. Provider, for each distinct text still missing
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!resolved.containsKey(keys.get(i))) {
+                missing.putIfAbsent(keys.get(i), texts.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<String> missingKeys = new ArrayList<>(missing.keySet());
+            List<String> missingTexts = new ArrayList<>(missing.values());
+            misses.increment(missingTexts.size());
+            List<float[]> generated = provider.apply(missingTexts);
+            Map<String, float[]> fresh = new LinkedHashMap<>();
+            for (int i = 0; i < missingKeys.size(); i++) {
+                float[] vector = generated.get(i);
+                resolved.put(missingKeys.get(i), vector);
+                // Never cache the empty vector a provider returns on failure
+                if (vector.length > 0) {
+                    fresh.put(missingKeys.get(i), vector);
+                }
+            }
+            rememberAll(fresh);
+            if (persistent) {
+                savePersistent(fresh);
+            }
+        }
+        
+        List<float[]> results = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            results.add(resolved.get(key));
+        }
+        return results;
+    }
+    
+    @Override
+    public int getEmbeddingDimension() {
+        return delegate.getEmbeddingDimension();
+    }
+    
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+    
+    private Map<String, float[]> findPersistent(List<String> keys) {
+        try {
+            return cacheRepository.findAll(getModelName(), getEmbeddingDimension(), keys);
+        } catch (DataAccessException e) {
+            logger.warn("Embedding cache lookup failed, falling back to provider: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+    
+    private void savePersistent(Map<String, float[]> vectors) {
+        try {
+            cacheRepository.saveAll(getModelName(), getEmbeddingDimension(), vectors);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to store {} embeddings in cache: {}", vectors.size(), e.getMessage());
+        }
+    }
+    
+    private void rememberAll(Map<String, float[]> vectors) {
+        if (vectors.isEmpty()) {
+            return;
+        }
+        synchronized (memory) {
+            memory.putAll(vectors);
+        }
+    }
+    
+    // Occurrences (not distinct keys) served from the given map, so metrics count texts
+    private static long countOf(List<String> keys, Map<String, float[]> served) {
+        return keys.stream().filter(served::containsKey).count();
+    }
+    
+    // The persistent tier is already partitioned by model and dimension; the key only needs the text hash
+    private String cacheKey(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static Counter lookupCounter(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("embedding.cache.lookups")
+                .description("Embedding lookups by the tier that served them")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -6,6 +6,8 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import okhttp3.*;
 import okhttp3.logging.HttpLoggingInterceptor;
 import org.slf4j.Logger;
@@ -14,17 +16,23 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.StreamSupport;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class ConfluenceServiceImpl implements ConfluenceService {
     
     private static final Logger logger = LoggerFactory.getLogger(ConfluenceServiceImpl.class);
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final DateTimeFormatter CQL_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
     
     private final OkHttpClient httpClient;
     private final Gson gson;
@@ -32,14 +40,20 @@ public class ConfluenceServiceImpl implements ConfluenceService {
     private final String authToken;
     private final String authEmail;
     private final boolean isCloudInstance;
+    private final long cqlOverlapMinutes;
+    private final ZoneId cqlTimeZone;
     
     public ConfluenceServiceImpl(
             @Value("${confluence.base-url}") String baseUrl,
             @Value("${confluence.auth.token}") String authToken,
-            @Value("${confluence.auth.email:}") String authEmail) {
+            @Value("${confluence.auth.email:}") String authEmail,
+            @Value("${confluence.incremental.cql-overlap-minutes:5}") long cqlOverlapMinutes,
+            @Value("${confluence.incremental.cql-time-zone:UTC}") String cqlTimeZone) {
         this.baseUrl = baseUrl;
         this.authToken = authToken;
         this.authEmail = authEmail;
+        this.cqlOverlapMinutes = cqlOverlapMinutes;
+        this.cqlTimeZone = ZoneId.of(cqlTimeZone);
         // Confluence Cloud uses .atlassian.net domain
         this.isCloudInstance = baseUrl != null && baseUrl.contains(".atlassian.net");
         this.httpClient = new OkHttpClient.Builder()
@@ -65,69 +79,50 @@ public class ConfluenceServiceImpl implements ConfluenceService {
     }
     
     @Override
-    public List<ConfluencePage> fetchRCAPages(String spaceKey, List<String> tags) {
+    public List<ConfluencePage> fetchRCAPages(String spaceKey, List<String> tags, boolean includeBody) {
         List<ConfluencePage> pages = new ArrayList<>();
-        String start = "0";
-        int limit = 50;
-        
         try {
-            while (true) {
-                String url = String.format("%s/rest/api/content?spaceKey=%s&limit=%d&start=%s&expand=body.storage,version,metadata.labels",
-                        baseUrl, spaceKey, limit, start);
-                
-                Request request = new Request.Builder()
-                        .url(url)
-                        .header("Authorization", getAuthorizationHeader())
-                        .header("Accept", "application/json")
-                        .get()
-                        .build();
-                
-                try (Response response = httpClient.newCall(request).execute()) {
-                    if (!response.isSuccessful()) {
-                        logger.error("Failed to fetch pages: {}", response);
-                        break;
-                    }
-                    
-                    JsonObject jsonResponse = gson.fromJson(response.body().string(), JsonObject.class);
-                    JsonArray results = jsonResponse.getAsJsonArray("results");
-                    
-                    if (results == null || results.size() == 0) {
-                        break;
-                    }
-                    
-                    for (JsonElement element : results) {
-                        JsonObject pageObj = element.getAsJsonObject();
-                        ConfluencePage page = parsePage(pageObj);
-                        
-                        // Filter by tags if provided
-                        if (tags == null || tags.isEmpty() || hasAnyTag(page, tags)) {
-                            pages.add(page);
-                            logger.debug("Page matched: {} (labels: {})", page.getTitle(), page.getLabels());
-                        } else {
-                            logger.trace("Page skipped (no matching tags): {} (labels: {})", page.getTitle(), page.getLabels());
-                        }
-                    }
-                    
-                    // Check if there are more pages
-                    JsonElement links = jsonResponse.get("_links");
-                    if (links != null && links.getAsJsonObject().has("next")) {
-                        start = String.valueOf(Integer.parseInt(start) + limit);
-                    } else {
-                        break;
-                    }
-                }
-            }
-        } catch (IOException e) {
+            streamRCAPages(spaceKey, tags, includeBody, pages::add);
+        } catch (RuntimeException e) {
+            // Keep what was listed before the failure
             logger.error("Error fetching RCA pages", e);
         }
-        
         return pages;
     }
     
+    @Override
+    public void streamRCAPages(String spaceKey, List<String> tags, boolean includeBody,
+                               Predicate<ConfluencePage> consumer) {
+        int start = 0;
+        int limit = 50;
+        String expand = includeBody ? "body.storage,version,metadata.labels,space" : "version,metadata.labels,space";
+        
+        Predicate<ConfluencePage> tagFiltered = page -> {
+            // Filter by tags if provided
+            if (tags == null || tags.isEmpty() || hasAnyTag(page, tags)) {
+                logger.debug("Page matched: {} (labels: {})", page.getTitle(), page.getLabels());
+                return consumer.test(page);
+            }
+            logger.trace("Page skipped (no matching tags): {} (labels: {})", page.getTitle(), page.getLabels());
+            return true;
+        };
+        
+        while (true) {
+            String url = String.format("%s/rest/api/content?spaceKey=%s&limit=%d&start=%d&expand=%s",
+                    baseUrl, spaceKey, limit, start, expand);
+            
+            ResultPage resultPage = streamResultPage(url, tagFiltered);
+            if (resultPage.stopped() || resultPage.count() == 0 || resultPage.next() == null) {
+                break;
+            }
+            start += limit;
+        }
+    }
+    
     @Override
     public ConfluencePage fetchPageById(String pageId) {
         try {
-            String url = String.format("%s/rest/api/content/%s?expand=body.storage,version,metadata.labels",
+            String url = String.format("%s/rest/api/content/%s?expand=body.storage,version,metadata.labels,space",
                     baseUrl, pageId);
             
             Request request = new Request.Builder()
@@ -153,19 +148,126 @@ public class ConfluenceServiceImpl implements ConfluenceService {
     }
     
     @Override
-    public List<ConfluencePage> fetchModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys, List<String> tags) {
+    public List<ConfluencePage> fetchModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys,
+                                                        List<String> tags, boolean includeBody) {
         List<ConfluencePage> pages = new ArrayList<>();
+        streamModifiedPagesSince(lastSync, spaceKeys, tags, includeBody, pages::add);
+        return pages;
+    }
+    
+    @Override
+    public void streamModifiedPagesSince(LocalDateTime lastSync, List<String> spaceKeys, List<String> tags,
+                                         boolean includeBody, Predicate<ConfluencePage> consumer) {
+        if (spaceKeys.isEmpty()) {
+            return;
+        }
+        
+        // The lastmodified filter runs on the Confluence side. The CQL date is interpreted in the API user's
+        // time zone and has minute precision, so convert the UTC watermark to that zone, widen the window by a
+        // few minutes for truncation and clock skew, and apply the exact cut-off here
+        LocalDateTime since = lastSync.atOffset(ZoneOffset.UTC).atZoneSameInstant(cqlTimeZone).toLocalDateTime();
+        String cql = buildModifiedSinceCql(since.minusMinutes(cqlOverlapMinutes), spaceKeys, tags);
+        String expand = includeBody ? "body.storage,version,metadata.labels,space" : "version,metadata.labels,space";
+        String url = HttpUrl.get(baseUrl + "/rest/api/content/search").newBuilder()
+                .addQueryParameter("cql", cql)
+                .addQueryParameter("limit", "50")
+                .addQueryParameter("expand", expand)
+                .build()
+                .toString();
+        logger.debug("Incremental search CQL: {}", cql);
         
-        for (String spaceKey : spaceKeys) {
-            List<ConfluencePage> spacePages = fetchRCAPages(spaceKey, tags);
-            for (ConfluencePage page : spacePages) {
-                if (page.getLastModified().isAfter(lastSync)) {
-                    pages.add(page);
+        int[] matched = {0};
+        Predicate<ConfluencePage> modifiedFiltered = page -> {
+            if (!page.getLastModified().isAfter(lastSync)) {
+                return true;
+            }
+            matched[0]++;
+            return consumer.test(page);
+        };
+        
+        while (url != null) {
+            ResultPage resultPage = streamResultPage(url, modifiedFiltered);
+            url = resultPage.stopped() ? null : resultPage.next();
+        }
+        
+        logger.info("Found {} pages modified since {} in spaces {}", matched[0], lastSync, spaceKeys);
+    }
+    
+    /**
+     * Fetch one page of content results (at most {@code limit} pages) and hand each page object to the consumer.
+     * The results page is buffered and the response closed first, so a consumer that blocks (e.g. on a full
+     * pipeline queue) never holds the connection open or runs into the read timeout.
+     * Failures are thrown so callers never mistake a broken listing for a complete one.
+     */
+    private ResultPage streamResultPage(String url, Predicate<ConfluencePage> consumer) {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Authorization", getAuthorizationHeader())
+                .header("Accept", "application/json")
+                .get()
+                .build();
+        
+        List<ConfluencePage> pages = new ArrayList<>();
+        String next = null;
+        String base = baseUrl;
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IllegalStateException("Failed to fetch pages: " + response.code() + " " + response.message());
+            }
+            
+            JsonReader reader = new JsonReader(response.body().charStream());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("results".equals(name)) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        pages.add(parsePage(JsonParser.parseReader(reader).getAsJsonObject()));
+                    }
+                    reader.endArray();
+                } else if ("_links".equals(name)) {
+                    JsonObject links = JsonParser.parseReader(reader).getAsJsonObject();
+                    if (links.has("next")) {
+                        next = links.get("next").getAsString();
+                    }
+                    if (links.has("base")) {
+                        base = links.get("base").getAsString();
+                    }
+                } else {
+                    reader.skipValue();
                 }
             }
+            reader.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error fetching pages from " + url, e);
         }
         
-        return pages;
+        for (ConfluencePage page : pages) {
+            if (!consumer.test(page)) {
+                return new ResultPage(pages.size(), null, true);
+            }
+        }
+        // The next link is relative to the instance base URL
+        return new ResultPage(pages.size(), next != null ? base + next : null, false);
+    }
+    
+    private record ResultPage(int count, String next, boolean stopped) {}
+    
+    private String buildModifiedSinceCql(LocalDateTime since, List<String> spaceKeys, List<String> tags) {
+        StringBuilder cql = new StringBuilder("type = page");
+        cql.append(" AND space IN (").append(quoteAll(spaceKeys)).append(")");
+        cql.append(" AND lastmodified >= \"").append(since.format(CQL_DATE_FORMAT)).append("\"");
+        if (tags != null && !tags.isEmpty()) {
+            cql.append(" AND label IN (").append(quoteAll(tags)).append(")");
+        }
+        cql.append(" ORDER BY lastmodified ASC");
+        return cql.toString();
+    }
+    
+    private String quoteAll(List<String> values) {
+        return values.stream()
+                .map(v -> "\"" + v.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(","));
     }
     
     @Override
@@ -202,18 +304,27 @@ public class ConfluenceServiceImpl implements ConfluenceService {
         
         String url = baseUrl + pageObj.get("_links").getAsJsonObject().get("webui").getAsString();
         
-        String body = "";
-        if (pageObj.has("body") && pageObj.getAsJsonObject("body").has("storage")) {
-            body = pageObj.getAsJsonObject("body")
-                    .getAsJsonObject("storage")
-                    .get("value").getAsString();
+        // A missing body means it was not expanded (lightweight listing), not that the page is empty
+        String body = null;
+        if (pageObj.has("body")) {
+            body = "";
+            if (pageObj.getAsJsonObject("body").has("storage")) {
+                body = pageObj.getAsJsonObject("body")
+                        .getAsJsonObject("storage")
+                        .get("value").getAsString();
+            }
         }
         
         LocalDateTime lastModified = null;
+        Integer version = null;
         if (pageObj.has("version")) {
-            String dateStr = pageObj.getAsJsonObject("version").get("when").getAsString();
-            lastModified = LocalDateTime.parse(dateStr.substring(0, 19), 
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
+            JsonObject versionObj = pageObj.getAsJsonObject("version");
+            // Keep the instant, not the wall-clock time: Server reports the offset of its own zone
+            String dateStr = versionObj.get("when").getAsString();
+            lastModified = OffsetDateTime.parse(dateStr).withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+            if (versionObj.has("number")) {
+                version = versionObj.get("number").getAsInt();
+            }
         }
         
         List<String> labels = new ArrayList<>();
@@ -232,7 +343,8 @@ public class ConfluenceServiceImpl implements ConfluenceService {
         page.setSpaceKey(spaceKey);
         page.setUrl(url);
         page.setBody(body);
-        page.setLastModified(lastModified != null ? lastModified : LocalDateTime.now());
+        page.setLastModified(lastModified != null ? lastModified : LocalDateTime.now(ZoneOffset.UTC));
+        page.setVersion(version);
         page.setLabels(labels);
         page.setStatus("current");
         return page;
@@ -0,0 +1,338 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.client.CircuitBreaker;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends embedding batches to the active provider with a bounded number of requests in flight.
+ * Every attempt first takes its share of the requests-per-minute and tokens-per-minute budgets.
+ * A 429 pauses all batches for the advertised Retry-After, and failed batches are retried with
+ * exponential backoff. A batch that still fails makes the whole call fail instead of returning
+ * empty vectors, so no chunk is silently dropped. Only 429s, 5xx responses and I/O errors are retried;
+ * any other provider error (bad request, auth) fails at once.
+ *
+ * <p>Search queries take a separate path, {@link #embedQuery}: they run on their own threads, outside the
+ * bulk in-flight limit and rate budgets, with at most a short retry inside a hard deadline, so a sync in
+ * progress cannot delay a search by more than that deadline.
+ */
+@Component
+public class EmbeddingDispatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingDispatcher.class);
+    
+    /** Provider call for one batch; must return exactly one vector per input text, in order. */
+    @FunctionalInterface
+    public interface BatchCall {
+        List<float[]> embed(List<String> batch) throws IOException;
+    }
+    
+    /** Thrown by providers for a non-2xx response; only 429 and 5xx are worth retrying. */
+    public static class ProviderException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        private final int statusCode;
+        
+        public ProviderException(String message, int statusCode, Throwable cause) {
+            super(message, cause);
+            this.statusCode = statusCode;
+        }
+        
+        public int getStatusCode() { return statusCode; }
+        
+        public boolean isRetryable() {
+            return statusCode == 429 || statusCode >= 500;
+        }
+    }
+    
+    /** Thrown by providers on HTTP 429; {@code retryAfterMillis} is negative when the server gave no hint. */
+    public static class RateLimitedException extends ProviderException {
+        private static final long serialVersionUID = 1L;
+        
+        private final long retryAfterMillis;
+        
+        public RateLimitedException(String message, long retryAfterMillis) {
+            super(message, 429, null);
+            this.retryAfterMillis = retryAfterMillis;
+        }
+        
+        public long getRetryAfterMillis() { return retryAfterMillis; }
+    }
+    
+    private final ExecutorService executor;
+    private final ExecutorService queryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RateBudget requestBudget;
+    private final RateBudget tokenBudget;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long queryTimeoutMillis;
+    private final int queryRetries;
+    private final long queryRetryBackoffMillis;
+    private final Object pauseLock = new Object();
+    private long pausedUntil;
+    
+    public EmbeddingDispatcher(
+            @Value("${embedding.dispatch.max-in-flight:4}") int maxInFlight,
+            @Value("${embedding.dispatch.requests-per-minute:0}") int requestsPerMinute,
+            @Value("${embedding.dispatch.tokens-per-minute:0}") int tokensPerMinute,
+            @Value("${embedding.dispatch.max-retries:5}") int maxRetries,
+            @Value("${embedding.dispatch.initial-backoff-ms:1000}") long initialBackoffMillis,
+            @Value("${embedding.dispatch.max-backoff-ms:60000}") long maxBackoffMillis,
+            @Value("${embedding.query.timeout-ms:5000}") long queryTimeoutMillis,
+            @Value("${embedding.query.max-retries:1}") int queryRetries,
+            @Value("${embedding.query.retry-backoff-ms:200}") long queryRetryBackoffMillis) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "embed-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.requestBudget = new RateBudget(requestsPerMinute);
+        this.tokenBudget = new RateBudget(tokensPerMinute);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.queryTimeoutMillis = Math.max(1, queryTimeoutMillis);
+        this.queryRetries = Math.max(0, queryRetries);
+        this.queryRetryBackoffMillis = Math.max(0, queryRetryBackoffMillis);
+        logger.info("Embedding dispatcher initialized - In flight: {}, RPM: {}, TPM: {}",
+                maxInFlight, requestsPerMinute > 0 ? requestsPerMinute : "unlimited",
+                tokensPerMinute > 0 ? tokensPerMinute : "unlimited");
+    }
+    
+    /**
+     * Embed {@code texts} in batches of {@code batchSize}, running batches concurrently.
+     *
+     * @return one vector per input text, in input order
+     * @throws RuntimeException if a batch still fails after all retries
+     */
+    public List<float[]> dispatch(List<String> texts, int batchSize, BatchCall call) {
+        int size = Math.max(1, batchSize);
+        List<Future<List<float[]>>> futures = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i += size) {
+            List<String> batch = texts.subList(i, Math.min(i + size, texts.size()));
+            futures.add(executor.submit(() -> callWithRetry(batch, call)));
+        }
+        
+        List<float[]> results = new ArrayList<>(texts.size());
+        try {
+            for (Future<List<float[]>> future : futures) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for embeddings", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException("Embedding batch failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
+    
+    /**
+     * Embed a single search query within {@code embedding.query.timeout-ms}. Does not wait for the bulk
+     * in-flight slots, rate budgets or 429 pauses, and retries a retryable failure at most
+     * {@code embedding.query.max-retries} times while the deadline allows.
+     *
+     * <p>The provider's {@code breaker} sees timeouts and transient failures (other than 429s, which mean the
+     * provider is up but busy); while it is open queries fail at once instead of waiting out the deadline.
+     *
+     * @throws RuntimeException if the query could not be embedded before the deadline
+     * @throws CircuitBreaker.CallNotPermittedException if the breaker is open
+     */
+    public float[] embedQuery(String text, BatchCall call, CircuitBreaker breaker) {
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            throw new CircuitBreaker.CallNotPermittedException(breaker.getName());
+        }
+        try {
+            float[] vector = embedQueryWithin(text, call);
+            breaker.onSuccess(permit);
+            return vector;
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof TimeoutException
+                    || (isRetryable(e) && !(e.getCause() instanceof RateLimitedException))) {
+                breaker.onFailure(permit);
+            } else {
+                breaker.onSuccess(permit);
+            }
+            throw e;
+        }
+    }
+    
+    private float[] embedQueryWithin(String text, BatchCall call) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMillis);
+        Future<float[]> future = queryExecutor.submit(() -> {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    List<float[]> vectors = call.embed(List.of(text));
+                    if (vectors.size() != 1) {
+                        throw new IllegalStateException("Provider returned " + vectors.size() + " vectors for 1 text");
+                    }
+                    return vectors.get(0);
+                } catch (Exception e) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (attempt >= queryRetries || !isRetryable(e) || remaining <= queryRetryBackoffMillis) {
+                        throw e;
+                    }
+                    logger.debug("Query embedding failed, retrying once: {}", e.getMessage());
+                    Thread.sleep(queryRetryBackoffMillis);
+                }
+            }
+        });
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RuntimeException("Query embedding timed out after " + queryTimeoutMillis + " ms", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while embedding query", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Query embedding failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * 429s, 5xx responses and I/O errors (also when a client library wraps them) are transient;
+     * other 4xx responses and malformed results will fail the same way again.
+     */
+    static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProviderException provider) {
+                return provider.isRetryable();
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private List<float[]> callWithRetry(List<String> batch, BatchCall call) throws Exception {
+        int tokens = estimateTokens(batch);
+        long backoff = initialBackoffMillis;
+        for (int attempt = 0; ; attempt++) {
+            awaitPause();
+            requestBudget.acquire(1);
+            tokenBudget.acquire(tokens);
+            
+            long delay;
+            try {
+                List<float[]> vectors = call.embed(batch);
+                if (vectors.size() != batch.size()) {
+                    throw new IllegalStateException("Provider returned " + vectors.size() + " vectors for " + batch.size() + " texts");
+                }
+                return vectors;
+            } catch (RateLimitedException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                delay = e.getRetryAfterMillis() >= 0 ? e.getRetryAfterMillis() : jitter(backoff);
+                pauseFor(delay);
+                logger.warn("Embedding rate limited, pausing {} ms (attempt {}/{})", delay, attempt + 1, maxRetries);
+            } catch (IOException | RuntimeException e) {
+                if (attempt >= maxRetries || !isRetryable(e)) {
+                    throw e;
+                }
+                delay = jitter(backoff);
+                logger.warn("Embedding batch of {} failed, retrying in {} ms (attempt {}/{}): {}",
+                        batch.size(), delay, attempt + 1, maxRetries, e.getMessage());
+            }
+            Thread.sleep(delay);
+            backoff = Math.min(backoff * 2, maxBackoffMillis);
+        }
+    }
+    
+    private void pauseFor(long millis) {
+        synchronized (pauseLock) {
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + millis);
+        }
+    }
+    
+    private void awaitPause() throws InterruptedException {
+        long wait;
+        synchronized (pauseLock) {
+            wait = pausedUntil - System.currentTimeMillis();
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+    
+    private long jitter(long backoff) {
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+    
+    // Rough count used only for budgeting: ~4 characters per token for English text
+    private static int estimateTokens(List<String> batch) {
+        long chars = 0;
+        for (String text : batch) {
+            chars += text.length();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, chars / 4 + batch.size());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        queryExecutor.shutdownNow();
+    }
+    
+    /**
+     * Per-minute budget refilled continuously (token bucket holding at most one minute of allowance).
+     * A limit of zero or less means unlimited.
+     */
+    private static class RateBudget {
+        private final double perMilli;
+        private final double capacity;
+        private double available;
+        private long lastRefill = System.currentTimeMillis();
+        
+        private RateBudget(int perMinute) {
+            this.capacity = perMinute;
+            this.perMilli = perMinute / 60_000.0;
+            this.available = perMinute;
+        }
+        
+        private void acquire(int amount) throws InterruptedException {
+            if (capacity <= 0) {
+                return;
+            }
+            // A single batch larger than the whole budget waits for a full bucket rather than forever
+            double needed = Math.min(amount, capacity);
+            while (true) {
+                long wait;
+                synchronized (this) {
+                    long now = System.currentTimeMillis();
+                    available = Math.min(capacity, available + (now - lastRefill) * perMilli);
+                    lastRefill = now;
+                    if (available >= needed) {
+                        available -= needed;
+                        return;
+                    }
+                    wait = (long) Math.ceil((needed - available) / perMilli);
+                }
+                Thread.sleep(Math.max(1, wait));
+            }
+        }
+    }
+}
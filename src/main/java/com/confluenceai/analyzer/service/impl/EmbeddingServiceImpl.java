@@ -1,24 +1,30 @@
 package com.confluenceai.analyzer.service.impl;
 
+import com.confluenceai.analyzer.client.AiHttpClientFactory;
+import com.confluenceai.analyzer.client.CircuitBreaker;
 import com.confluenceai.analyzer.service.EmbeddingService;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.theokanning.openai.OpenAiHttpException;
 import com.theokanning.openai.service.OpenAiService;
 import com.theokanning.openai.embedding.Embedding;
 import com.theokanning.openai.embedding.EmbeddingRequest;
 import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import retrofit2.HttpException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
+@Qualifier(CachingEmbeddingService.PROVIDER)
 @ConditionalOnProperty(name = "embedding.provider", havingValue = "openai")
 public class EmbeddingServiceImpl implements EmbeddingService {
     
@@ -28,8 +34,12 @@ public class EmbeddingServiceImpl implements EmbeddingService {
     private final String model;
     private final int dimension;
     private final int batchSize;
+    private final EmbeddingDispatcher dispatcher;
+    private final CircuitBreaker circuitBreaker;
     
     public EmbeddingServiceImpl(
+            EmbeddingDispatcher dispatcher,
+            AiHttpClientFactory clientFactory,
             @Value("${embedding.model}") String model,
             @Value("${embedding.dimension}") int dimension,
             @Value("${embedding.batch-size}") int batchSize,
@@ -37,65 +47,105 @@ public class EmbeddingServiceImpl implements EmbeddingService {
         this.model = model;
         this.dimension = dimension;
         this.batchSize = batchSize;
-        this.openAiService = new OpenAiService(apiKey);
+        this.dispatcher = dispatcher;
+        this.openAiService = clientFactory.openAi("embedding", apiKey);
+        this.circuitBreaker = clientFactory.circuitBreaker("embedding");
     }
     
     @Override
-    public List<Float> generateEmbedding(String text) {
+    public float[] embed(String text) {
         try {
-            EmbeddingRequest request = EmbeddingRequest.builder()
-                    .model(model)
-                    .input(List.of(text))
-                    .build();
-            
-            List<Embedding> embeddings = openAiService.createEmbeddings(request).getData();
-            if (!embeddings.isEmpty()) {
-                return embeddings.get(0).getEmbedding().stream()
-                        .map(Double::floatValue)
-                        .collect(Collectors.toList());
-            }
-        } catch (Exception e) {
+            return dispatcher.embedQuery(text, this::requestEmbeddings, circuitBreaker);
+        } catch (RuntimeException e) {
             logger.error("Error generating embedding", e);
+            return new float[0];
         }
-        return new ArrayList<>();
     }
     
+    /**
+     * Embeds all texts through the dispatcher, which keeps several batches in flight within the
+     * configured rate budgets. Throws if a batch still fails after retries.
+     */
     @Override
-    public List<List<Float>> generateEmbeddings(List<String> texts) {
-        List<List<Float>> results = new ArrayList<>();
+    public List<float[]> embedAll(List<String> texts) {
+        return dispatcher.dispatch(texts, batchSize, this::requestEmbeddings);
+    }
+    
+    private List<float[]> requestEmbeddings(List<String> batch) throws IOException {
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(model)
+                .input(batch)
+                .build();
         
-        // Process in batches
-        for (int i = 0; i < texts.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, texts.size());
-            List<String> batch = texts.subList(i, end);
-            
-            try {
-                EmbeddingRequest request = EmbeddingRequest.builder()
-                        .model(model)
-                        .input(batch)
-                        .build();
-                
-                List<Embedding> embeddings = openAiService.createEmbeddings(request).getData();
-                for (Embedding embedding : embeddings) {
-                    results.add(embedding.getEmbedding().stream()
-                            .map(Double::floatValue)
-                            .collect(Collectors.toList()));
-                }
-            } catch (Exception e) {
-                logger.error("Error generating embeddings for batch", e);
-                // Add empty lists for failed batch
-                for (int j = 0; j < batch.size(); j++) {
-                    results.add(new ArrayList<>());
-                }
+        List<Embedding> embeddings;
+        try {
+            embeddings = openAiService.createEmbeddings(request).getData();
+        } catch (OpenAiHttpException e) {
+            if (e.statusCode == 429) {
+                throw new EmbeddingDispatcher.RateLimitedException("OpenAI rate limit exceeded", retryAfter(e));
             }
+            throw new EmbeddingDispatcher.ProviderException("OpenAI API error: " + e.getMessage(), e.statusCode, e);
+        } catch (HttpException e) {
+            // Error responses without an OpenAI error body (e.g. a 502 from a proxy) are not translated by the client
+            throw new EmbeddingDispatcher.ProviderException("OpenAI HTTP error: " + e.code(), e.code(), e);
         }
         
-        return results;
+        // Results carry their input position; don't rely on response order. A malformed response is
+        // not retryable, so it is reported as an IllegalStateException like a vector count mismatch
+        float[][] vectors = new float[batch.size()][];
+        for (Embedding embedding : embeddings) {
+            Integer index = embedding.getIndex();
+            if (index == null || index < 0 || index >= vectors.length) {
+                throw new IllegalStateException("OpenAI returned an embedding for input " + index
+                        + " of a batch of " + batch.size());
+            }
+            vectors[index] = toArray(embedding);
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < vectors.length; i++) {
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("OpenAI returned no embedding for inputs " + missing
+                    + " of a batch of " + batch.size());
+        }
+        return List.of(vectors);
+    }
+    
+    private static long retryAfter(OpenAiHttpException e) {
+        if (e.getCause() instanceof HttpException http && http.response() != null) {
+            String header = http.response().headers().get("Retry-After");
+            if (header != null) {
+                try {
+                    return (long) (Double.parseDouble(header.trim()) * 1000);
+                } catch (NumberFormatException ignored) {
+                    // HTTP-date form; fall back to backoff
+                }
+            }
+        }
+        return -1;
+    }
+    
+    // The client library hands back List<Double>; narrow it once into a primitive array
+    private static float[] toArray(Embedding embedding) {
+        List<Double> values = embedding.getEmbedding();
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i).floatValue();
+        }
+        return vector;
     }
     
     @Override
     public int getEmbeddingDimension() {
         return dimension;
     }
+    
+    @Override
+    public String getModelName() {
+        return model;
+    }
 }
 
@@ -1,25 +1,27 @@
 package com.confluenceai.analyzer.service.impl;
 
+import com.confluenceai.analyzer.client.AiHttpClientFactory;
+import com.confluenceai.analyzer.client.CircuitBreaker;
 import com.confluenceai.analyzer.service.EmbeddingService;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 @Service
-@Primary
+@Qualifier(CachingEmbeddingService.PROVIDER)
 @ConditionalOnProperty(name = "embedding.provider", havingValue = "gemini", matchIfMissing = true)
 public class GeminiEmbeddingServiceImpl implements EmbeddingService {
     
@@ -34,8 +36,12 @@ public class GeminiEmbeddingServiceImpl implements EmbeddingService {
     private final String model;
     private final int dimension;
     private final int batchSize;
+    private final EmbeddingDispatcher dispatcher;
+    private final CircuitBreaker circuitBreaker;
     
     public GeminiEmbeddingServiceImpl(
+            EmbeddingDispatcher dispatcher,
+            AiHttpClientFactory clientFactory,
             @Value("${embedding.gemini.api-key:${GEMINI_API_KEY:}}") String apiKey,
             @Value("${embedding.gemini.model:text-embedding-004}") String model,
             @Value("${embedding.dimension:768}") int dimension,
@@ -44,102 +50,81 @@ public class GeminiEmbeddingServiceImpl implements EmbeddingService {
         this.model = model;
         this.dimension = dimension;
         this.batchSize = batchSize;
+        this.dispatcher = dispatcher;
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
-                .build();
+        this.httpClient = clientFactory.client("gemini");
+        this.circuitBreaker = clientFactory.circuitBreaker("gemini");
         
         logger.info("Gemini Embedding Service initialized - Model: {}, Dimension: {}", model, dimension);
     }
     
     @Override
-    public List<Float> generateEmbedding(String text) {
+    public float[] embed(String text) {
         if (apiKey == null || apiKey.isEmpty()) {
             logger.warn("Gemini API key not configured. Set GEMINI_API_KEY environment variable.");
-            return new ArrayList<>();
+            return new float[0];
         }
         
         try {
-            String url = String.format(GEMINI_EMBED_URL, model, apiKey);
-            
-            JsonObject content = new JsonObject();
-            JsonArray parts = new JsonArray();
-            JsonObject textPart = new JsonObject();
-            textPart.addProperty("text", text);
-            parts.add(textPart);
-            content.add("parts", parts);
-            
-            JsonObject requestBody = new JsonObject();
-            requestBody.add("content", content);
-            requestBody.addProperty("taskType", "RETRIEVAL_DOCUMENT");
-            
-            Request request = new Request.Builder()
-                    .url(url)
-                    .post(RequestBody.create(gson.toJson(requestBody), JSON))
-                    .header("Content-Type", "application/json")
-                    .build();
-            
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    String errorBody = response.body() != null ? response.body().string() : "No error body";
-                    logger.error("Gemini API error: {} - {}", response.code(), errorBody);
-                    return new ArrayList<>();
-                }
-                
-                String responseBody = response.body().string();
-                JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-                
-                if (jsonResponse.has("embedding")) {
-                    JsonArray values = jsonResponse.getAsJsonObject("embedding").getAsJsonArray("values");
-                    List<Float> embedding = new ArrayList<>();
-                    for (JsonElement val : values) {
-                        embedding.add(val.getAsFloat());
-                    }
-                    return embedding;
-                }
-            }
-        } catch (IOException e) {
+            return dispatcher.embedQuery(text, batch -> List.of(generateSingleEmbedding(batch.get(0))), circuitBreaker);
+        } catch (RuntimeException e) {
             logger.error("Error generating Gemini embedding", e);
+            return new float[0];
         }
-        
-        return new ArrayList<>();
     }
     
-    @Override
-    public List<List<Float>> generateEmbeddings(List<String> texts) {
-        List<List<Float>> results = new ArrayList<>();
+    private float[] generateSingleEmbedding(String text) throws IOException {
+        String url = String.format(GEMINI_EMBED_URL, model, apiKey);
         
-        if (apiKey == null || apiKey.isEmpty()) {
-            logger.warn("Gemini API key not configured. Set GEMINI_API_KEY environment variable.");
-            for (int i = 0; i < texts.size(); i++) {
-                results.add(new ArrayList<>());
-            }
-            return results;
-        }
+        JsonObject content = new JsonObject();
+        JsonArray parts = new JsonArray();
+        JsonObject textPart = new JsonObject();
+        textPart.addProperty("text", text);
+        parts.add(textPart);
+        content.add("parts", parts);
+        
+        JsonObject requestBody = new JsonObject();
+        requestBody.add("content", content);
+        requestBody.addProperty("taskType", "RETRIEVAL_DOCUMENT");
+        
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(gson.toJson(requestBody), JSON))
+                .header("Content-Type", "application/json")
+                .build();
         
-        // Process in batches (Gemini supports up to 100 texts per batch)
-        for (int i = 0; i < texts.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, texts.size());
-            List<String> batch = texts.subList(i, end);
+        try (Response response = httpClient.newCall(request).execute()) {
+            checkResponse(response);
             
-            try {
-                List<List<Float>> batchResults = generateBatchEmbeddings(batch);
-                results.addAll(batchResults);
-            } catch (Exception e) {
-                logger.error("Error generating embeddings for batch starting at {}", i, e);
-                // Add empty lists for failed batch
-                for (int j = 0; j < batch.size(); j++) {
-                    results.add(new ArrayList<>());
+            // { "embedding": { "values": [...] } }
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("embedding")) {
+                        return readEmbedding(reader);
+                    }
+                    reader.skipValue();
                 }
             }
         }
+        throw new IOException("Gemini response contained no embedding");
+    }
+    
+    /**
+     * Embeds all texts through the dispatcher, which keeps several batches in flight within the
+     * configured rate budgets. Throws if a batch still fails after retries.
+     */
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            throw new IllegalStateException("Gemini API key not configured. Set GEMINI_API_KEY environment variable.");
+        }
         
-        return results;
+        // Gemini supports up to 100 texts per batch
+        return dispatcher.dispatch(texts, batchSize, this::generateBatchEmbeddings);
     }
     
-    private List<List<Float>> generateBatchEmbeddings(List<String> texts) throws IOException {
+    private List<float[]> generateBatchEmbeddings(List<String> texts) throws IOException {
         String url = String.format(GEMINI_BATCH_EMBED_URL, model, apiKey);
         
         JsonArray requests = new JsonArray();
@@ -169,27 +154,23 @@ public class GeminiEmbeddingServiceImpl implements EmbeddingService {
                 .build();
         
         try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error body";
-                logger.error("Gemini batch API error: {} - {}", response.code(), errorBody);
-                throw new IOException("Gemini API error: " + response.code());
-            }
-            
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+            checkResponse(response);
             
-            List<List<Float>> results = new ArrayList<>();
+            List<float[]> results = new ArrayList<>(texts.size());
             
-            if (jsonResponse.has("embeddings")) {
-                JsonArray embeddings = jsonResponse.getAsJsonArray("embeddings");
-                for (JsonElement embeddingElement : embeddings) {
-                    JsonObject embeddingObj = embeddingElement.getAsJsonObject();
-                    JsonArray values = embeddingObj.getAsJsonArray("values");
-                    List<Float> embedding = new ArrayList<>();
-                    for (JsonElement val : values) {
-                        embedding.add(val.getAsFloat());
+            // { "embeddings": [ { "values": [...] }, ... ] }
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("embeddings")) {
+                        reader.skipValue();
+                        continue;
                     }
-                    results.add(embedding);
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        results.add(readEmbedding(reader));
+                    }
+                    reader.endArray();
                 }
             }
             
@@ -197,9 +178,67 @@ public class GeminiEmbeddingServiceImpl implements EmbeddingService {
         }
     }
     
+    private void checkResponse(Response response) throws IOException {
+        if (response.isSuccessful()) {
+            return;
+        }
+        if (response.code() == 429) {
+            throw new EmbeddingDispatcher.RateLimitedException("Gemini rate limit exceeded",
+                    parseRetryAfter(response.header("Retry-After")));
+        }
+        String errorBody = response.body() != null ? response.body().string() : "No error body";
+        logger.error("Gemini API error: {} - {}", response.code(), errorBody);
+        throw new EmbeddingDispatcher.ProviderException("Gemini API error: " + response.code(), response.code(), null);
+    }
+    
+    // Retry-After is either delay-seconds or an HTTP date; only the seconds form is used by Google APIs
+    private static long parseRetryAfter(String header) {
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Read one {@code { "values": [...] }} object straight into a primitive array,
+     * without building a JSON tree or boxing each value.
+     */
+    private float[] readEmbedding(JsonReader reader) throws IOException {
+        float[] vector = new float[0];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("values")) {
+                reader.skipValue();
+                continue;
+            }
+            float[] buffer = new float[dimension > 0 ? dimension : 768];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = (float) reader.nextDouble();
+            }
+            reader.endArray();
+            vector = size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+        reader.endObject();
+        return vector;
+    }
+    
     @Override
     public int getEmbeddingDimension() {
         return dimension;
     }
+    
+    @Override
+    public String getModelName() {
+        return model;
+    }
 }
 
@@ -10,22 +10,32 @@ import com.confluenceai.analyzer.service.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Service
 public class IngestionServiceImpl implements IngestionService {
     
     private static final Logger logger = LoggerFactory.getLogger(IngestionServiceImpl.class);
+    private static final int PROGRESS_INTERVAL = 50;
     
     private final ConfluenceService confluenceService;
     private final DocumentParserService documentParserService;
@@ -34,9 +44,23 @@ public class IngestionServiceImpl implements IngestionService {
     private final ParsedRcaRepository parsedRcaRepository;
     private final RcaEmbeddingRepository embeddingRepository;
     private final SyncHistoryRepository syncHistoryRepository;
+    private final SyncWatermarkRepository watermarkRepository;
     private final TransactionTemplate transactionTemplate;
+    private final VectorIndexManager vectorIndexManager;
+    private final SearchResultCache searchResultCache;
+    private final SemanticSummaryCache summaryCache;
+    private final SyncJobRunner syncJobRunner;
     private final int chunkSize;
     private final int chunkOverlap;
+    private final int fetchThreads;
+    private final int parseThreads;
+    private final int chunkThreads;
+    private final int embedThreads;
+    private final int persistThreads;
+    private final int pipelineQueueCapacity;
+    private final boolean lightweightListing;
+    // Embeddings made with other settings are not comparable with new ones, so a change re-embeds every page
+    private final String embeddingFingerprint;
     
     public IngestionServiceImpl(
             ConfluenceService confluenceService,
@@ -46,9 +70,21 @@ public class IngestionServiceImpl implements IngestionService {
             ParsedRcaRepository parsedRcaRepository,
             RcaEmbeddingRepository embeddingRepository,
             SyncHistoryRepository syncHistoryRepository,
+            SyncWatermarkRepository watermarkRepository,
             TransactionTemplate transactionTemplate,
+            VectorIndexManager vectorIndexManager,
+            SearchResultCache searchResultCache,
+            SemanticSummaryCache summaryCache,
+            SyncJobRunner syncJobRunner,
             @Value("${chunking.size:800}") int chunkSize,
-            @Value("${chunking.overlap:150}") int chunkOverlap) {
+            @Value("${chunking.overlap:150}") int chunkOverlap,
+            @Value("${ingestion.pipeline.fetch-threads:4}") int fetchThreads,
+            @Value("${ingestion.pipeline.parse-threads:0}") int parseThreads,
+            @Value("${ingestion.pipeline.chunk-threads:0}") int chunkThreads,
+            @Value("${ingestion.pipeline.embed-threads:4}") int embedThreads,
+            @Value("${ingestion.pipeline.persist-threads:2}") int persistThreads,
+            @Value("${ingestion.pipeline.queue-capacity:50}") int pipelineQueueCapacity,
+            @Value("${ingestion.listing.lightweight:false}") boolean lightweightListing) {
         this.confluenceService = confluenceService;
         this.documentParserService = documentParserService;
         this.embeddingService = embeddingService;
@@ -56,9 +92,25 @@ public class IngestionServiceImpl implements IngestionService {
         this.parsedRcaRepository = parsedRcaRepository;
         this.embeddingRepository = embeddingRepository;
         this.syncHistoryRepository = syncHistoryRepository;
+        this.watermarkRepository = watermarkRepository;
         this.transactionTemplate = transactionTemplate;
+        this.vectorIndexManager = vectorIndexManager;
+        this.searchResultCache = searchResultCache;
+        this.summaryCache = summaryCache;
+        this.syncJobRunner = syncJobRunner;
         this.chunkSize = chunkSize;
         this.chunkOverlap = chunkOverlap;
+        // CPU-bound stages default to one thread per core
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.fetchThreads = fetchThreads;
+        this.parseThreads = parseThreads > 0 ? parseThreads : cores;
+        this.chunkThreads = chunkThreads > 0 ? chunkThreads : cores;
+        this.embedThreads = embedThreads;
+        this.persistThreads = persistThreads;
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+        this.lightweightListing = lightweightListing;
+        this.embeddingFingerprint = sha256(String.join("|", embeddingService.getModelName(),
+                String.valueOf(embeddingService.getEmbeddingDimension()), String.valueOf(chunkSize), String.valueOf(chunkOverlap)));
     }
     
     @Override
@@ -74,8 +126,18 @@ public class IngestionServiceImpl implements IngestionService {
         syncHistory.setStartedAt(LocalDateTime.now());
         syncHistory = syncHistoryRepository.save(syncHistory);
         
-        // Start async processing
-        performSyncAsync(syncHistory.getId(), request);
+        // Hand off to the sync executor; the HTTP thread returns immediately
+        UUID syncId = syncHistory.getId();
+        try {
+            syncJobRunner.submit(syncId, () -> performSync(syncId, request));
+        } catch (TaskRejectedException e) {
+            logger.warn("Sync queue is full, rejecting sync {}", syncId);
+            syncHistory.setStatus("FAILED");
+            syncHistory.setErrorMessage("Sync queue is full, try again later");
+            syncHistory.setCompletedAt(LocalDateTime.now());
+            syncHistoryRepository.save(syncHistory);
+            throw e;
+        }
         
         // Return immediately with initial response
         SyncResponse response = convertToSyncResponse(syncHistory);
@@ -83,115 +145,231 @@ public class IngestionServiceImpl implements IngestionService {
         return response;
     }
     
-    @Async
-    public void performSyncAsync(UUID syncId, SyncRequest request) {
+    @Override
+    public SyncResponse cancelSync(UUID syncId) {
         SyncHistory syncHistory = syncHistoryRepository.findById(syncId)
                 .orElseThrow(() -> new RuntimeException("Sync not found: " + syncId));
         
-        try {
-            int pagesFetched = 0;
-            int pagesProcessed = 0;
-            int pagesFailed = 0;
+        if (syncJobRunner.cancel(syncId) && "RUNNING".equals(syncHistory.getStatus())) {
+            // Covers syncs cancelled while still queued; a running sync also marks itself on exit
+            markCancelled(syncHistory);
+        }
+        return convertToSyncResponse(syncHistory);
+    }
+    
+    private void performSync(UUID syncId, SyncRequest request) {
+        SyncHistory syncHistory = syncHistoryRepository.findById(syncId)
+                .orElseThrow(() -> new RuntimeException("Sync not found: " + syncId));
+        
+        SyncCounters counters = new SyncCounters();
+        
+        StagedPipeline.Listener<PageWork> listener = new StagedPipeline.Listener<>() {
+            @Override
+            public void onSuccess(PageWork work) {
+                (work.skipped ? counters.skipped : counters.processed).incrementAndGet();
+                counters.embeddingsWritten.addAndGet(work.embeddingsWritten);
+                counters.embeddingWriteNanos.addAndGet(work.embeddingWriteNanos);
+                if (work.spaceProgress != null) {
+                    work.spaceProgress.pageDone(work.listing.getLastModified());
+                }
+                saveProgress(syncHistory, counters);
+            }
             
-            LocalDateTime lastSync = null;
-            if ("INCREMENTAL".equals(request.getSyncType())) {
-                var lastSyncOpt = syncHistoryRepository.findFirstByOrderByStartedAtDesc();
-                if (lastSyncOpt.isPresent() && !lastSyncOpt.get().getId().equals(syncId)) {
-                    lastSync = lastSyncOpt.get().getStartedAt();
+            @Override
+            public void onFailure(PageWork work, Throwable e) {
+                logger.error("Error processing page {}", work.pageId, e);
+                updatePageStatus(work.pageId, "ERROR", e.getMessage());
+                if (work.spaceProgress != null) {
+                    work.spaceProgress.failed = true;
                 }
+                counters.failed.incrementAndGet();
+                saveProgress(syncHistory, counters);
             }
+        };
+        
+        try (StagedPipeline<PageWork> pipeline = buildPipeline("sync-" + syncId.toString().substring(0, 8), listener)) {
+            boolean incremental = "INCREMENTAL".equals(request.getSyncType());
+            List<SpaceProgress> spaces = new ArrayList<>();
             
             // Get the optional limit
             Integer limit = request.getLimit();
-            int totalProcessedWithLimit = 0;
-            boolean limitReached = false;
+            int[] fetched = {0}; // pages listed so far across all spaces
             
             for (String spaceKey : request.getSpaceKeys()) {
-                if (limitReached) break;
+                if ((limit != null && limit > 0 && fetched[0] >= limit) || syncJobRunner.isCancelled(syncId)) break;
                 
-                List<ConfluencePage> pages;
-                if (lastSync != null) {
-                    pages = confluenceService.fetchModifiedPagesSince(
-                            lastSync, List.of(spaceKey), request.getTags());
-                } else {
-                    pages = confluenceService.fetchRCAPages(spaceKey, request.getTags());
-                }
+                // Incremental syncs ask Confluence only for pages modified after the space's high-water mark;
+                // spaces that have never completed a sync fall back to a full listing
+                LocalDateTime lastSync = incremental
+                        ? watermarkRepository.findById(spaceKey).map(SyncWatermark::getLastModified).orElse(null)
+                        : null;
+                SpaceProgress spaceProgress = new SpaceProgress(spaceKey);
+                spaces.add(spaceProgress);
                 
-                // Apply limit if specified
-                if (limit != null && limit > 0) {
-                    int remaining = limit - totalProcessedWithLimit;
-                    if (remaining <= 0) {
-                        limitReached = true;
-                        break;
+                // Pages are handed to the pipeline as each listing response is parsed, so a large space is
+                // never held in memory; submit blocks while the fetch stage's queue is full
+                Predicate<ConfluencePage> submitPage = page -> {
+                    if (syncJobRunner.isCancelled(syncId)) {
+                        return false;
                     }
-                    if (pages.size() > remaining) {
-                        pages = pages.subList(0, remaining);
+                    if (limit != null && limit > 0 && fetched[0] >= limit) {
+                        spaceProgress.complete = false;
+                        return false;
                     }
-                }
-                
-                pagesFetched += pages.size();
-                
-                // Update progress
-                syncHistory.setPagesFetched(pagesFetched);
-                syncHistoryRepository.save(syncHistory);
-                
-                for (ConfluencePage page : pages) {
+                    PageWork work = new PageWork(page, false);
+                    work.spaceProgress = spaceProgress;
                     try {
-                        // Save page first
-                        savePageMetadata(page);
-                        // Use transactionTemplate to ensure transaction context
-                        transactionTemplate.executeWithoutResult(status -> {
-                            processPageInternal(page.getId());
-                        });
-                        pagesProcessed++;
-                        totalProcessedWithLimit++;
-                    } catch (Exception e) {
-                        logger.error("Error processing page {}", page.getId(), e);
-                        // Update page status to ERROR
-                        updatePageStatus(page.getId(), "ERROR", e.getMessage());
-                        pagesFailed++;
-                        totalProcessedWithLimit++;
+                        pipeline.submit(work);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                    if (++fetched[0] % PROGRESS_INTERVAL == 0) {
+                        saveFetched(syncHistory, fetched[0]);
                     }
-                    
-                    // Update progress after each page
-                    syncHistory.setPagesProcessed(pagesProcessed);
-                    syncHistory.setPagesFailed(pagesFailed);
-                    syncHistoryRepository.save(syncHistory);
+                    return true;
+                };
+                
+                if (lastSync != null) {
+                    confluenceService.streamModifiedPagesSince(
+                            lastSync, List.of(spaceKey), request.getTags(), !lightweightListing, submitPage);
+                } else {
+                    confluenceService.streamRCAPages(spaceKey, request.getTags(), !lightweightListing, submitPage);
                 }
+                saveFetched(syncHistory, fetched[0]);
             }
+            int pagesFetched = fetched[0];
             
-            syncHistory.setPagesFetched(pagesFetched);
-            syncHistory.setPagesProcessed(pagesProcessed);
-            syncHistory.setPagesFailed(pagesFailed);
-            syncHistory.setStatus("COMPLETED");
-            syncHistory.setCompletedAt(LocalDateTime.now());
-            syncHistoryRepository.save(syncHistory);
+            if (pipeline.awaitCompletion(() -> syncJobRunner.isCancelled(syncId))) {
+                advanceWatermarks(spaces);
+            }
+            
+            synchronized (syncHistory) {
+                syncHistory.setPagesFetched(pagesFetched);
+                counters.applyTo(syncHistory);
+                if (syncJobRunner.isCancelled(syncId)) {
+                    markCancelled(syncHistory);
+                    logger.info("Sync {} cancelled. Fetched: {}, Processed: {}, Skipped: {}, Failed: {}",
+                            syncId, pagesFetched, counters.processed.get(), counters.skipped.get(), counters.failed.get());
+                    return;
+                }
+                syncHistory.setStatus("COMPLETED");
+                syncHistory.setCompletedAt(LocalDateTime.now());
+                syncHistoryRepository.save(syncHistory);
+            }
             
-            logger.info("Sync {} completed. Fetched: {}, Processed: {}, Failed: {}", 
-                    syncId, pagesFetched, pagesProcessed, pagesFailed);
+            if (counters.embeddingsWritten.get() > 0) {
+                vectorIndexManager.onBulkLoad();
+            }
+            
+            logger.info("Sync {} completed. Fetched: {}, Processed: {}, Skipped: {}, Failed: {}, Embeddings written: {} in {} ms", 
+                    syncId, pagesFetched, counters.processed.get(), counters.skipped.get(), counters.failed.get(),
+                    counters.embeddingsWritten.get(), counters.embeddingWriteNanos.get() / 1_000_000);
             
         } catch (Exception e) {
-            logger.error("Error during sync {}", syncId, e);
-            syncHistory.setStatus("FAILED");
-            syncHistory.setErrorMessage(e.getMessage());
-            syncHistory.setCompletedAt(LocalDateTime.now());
+            synchronized (syncHistory) {
+                if (syncJobRunner.isCancelled(syncId)) {
+                    markCancelled(syncHistory);
+                    return;
+                }
+                logger.error("Error during sync {}", syncId, e);
+                syncHistory.setStatus("FAILED");
+                syncHistory.setErrorMessage(e.getMessage());
+                syncHistory.setCompletedAt(LocalDateTime.now());
+                syncHistoryRepository.save(syncHistory);
+            }
+        }
+    }
+    
+    /**
+     * Move each space's high-water mark to the newest page it ingested. Spaces with failed pages or a
+     * listing truncated by the request limit keep their old mark so the next incremental sync retries them.
+     */
+    private void advanceWatermarks(List<SpaceProgress> spaces) {
+        for (SpaceProgress space : spaces) {
+            LocalDateTime newest = space.newestLastModified;
+            if (!space.complete || space.failed || newest == null) {
+                continue;
+            }
+            SyncWatermark watermark = watermarkRepository.findById(space.spaceKey).orElse(null);
+            if (watermark == null) {
+                watermark = new SyncWatermark(space.spaceKey, newest);
+            } else if (newest.isAfter(watermark.getLastModified())) {
+                watermark.setLastModified(newest);
+            } else {
+                continue;
+            }
+            watermarkRepository.save(watermark);
+            logger.debug("Watermark for space {} advanced to {}", space.spaceKey, newest);
+        }
+    }
+    
+    private StagedPipeline<PageWork> buildPipeline(String name, StagedPipeline.Listener<PageWork> listener) {
+        return StagedPipeline.<PageWork>builder(name)
+                .queueCapacity(pipelineQueueCapacity)
+                .finishedWhen(work -> work.skipped)
+                .stage("fetch", fetchThreads, this::fetchPage)
+                .stage("parse", parseThreads, this::parsePage)
+                .stage("chunk", chunkThreads, this::chunkPage)
+                .stage("embed", embedThreads, this::embedPage)
+                .stage("persist", persistThreads, this::persistPage)
+                .build(listener);
+    }
+    
+    private void saveFetched(SyncHistory syncHistory, int pagesFetched) {
+        synchronized (syncHistory) {
+            syncHistory.setPagesFetched(pagesFetched);
             syncHistoryRepository.save(syncHistory);
         }
     }
     
-    private void savePageMetadata(ConfluencePage page) {
-        RcaPage rcaPage = rcaPageRepository.findByPageId(page.getId())
-                .orElse(new RcaPage());
+    private void saveProgress(SyncHistory syncHistory, SyncCounters counters) {
+        synchronized (syncHistory) {
+            counters.applyTo(syncHistory);
+            syncHistoryRepository.save(syncHistory);
+        }
+    }
+    
+    private void markCancelled(SyncHistory syncHistory) {
+        syncHistory.setStatus("CANCELLED");
+        syncHistory.setCompletedAt(LocalDateTime.now());
+        syncHistoryRepository.save(syncHistory);
+    }
+    
+    /**
+     * Upsert page metadata. Unchanged pages keep their EMBEDDED status and only pick up the new version number.
+     */
+    private void savePageMetadata(ConfluencePage page, RcaPage existing, boolean unchanged) {
+        // Skipped pages keep their embeddings, so a page moved to another space updates their copy of the key
+        if (unchanged && !Objects.equals(existing.getSpaceKey(), page.getSpaceKey())) {
+            embeddingRepository.updateSpaceKey(page.getId(), page.getSpaceKey());
+            searchResultCache.invalidate();
+        }
+        RcaPage rcaPage = existing != null ? existing : new RcaPage();
         rcaPage.setPageId(page.getId());
         rcaPage.setSpaceKey(page.getSpaceKey());
         rcaPage.setTitle(page.getTitle());
         rcaPage.setUrl(page.getUrl());
         rcaPage.setTags(page.getLabels() != null ? page.getLabels().toArray(new String[0]) : new String[0]);
         rcaPage.setLastModified(page.getLastModified());
-        rcaPage.setStatus("PENDING");
+        if (unchanged) {
+            rcaPage.setContentVersion(page.getVersion());
+        } else {
+            rcaPage.setStatus("PENDING");
+        }
         rcaPageRepository.save(rcaPage);
     }
     
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     @Override
     public SyncResponse getSyncStatus(UUID syncId) {
         return syncHistoryRepository.findById(syncId)
@@ -206,46 +384,137 @@ public class IngestionServiceImpl implements IngestionService {
             throw new RuntimeException("Page not found: " + pageId);
         }
         
-        // Save page metadata
-        RcaPage rcaPage = new RcaPage();
-        rcaPage.setPageId(page.getId());
-        rcaPage.setSpaceKey(page.getSpaceKey());
-        rcaPage.setTitle(page.getTitle());
-        rcaPage.setUrl(page.getUrl());
-        rcaPage.setTags(page.getLabels().toArray(new String[0]));
-        rcaPage.setLastModified(page.getLastModified());
-        rcaPage.setStatus("PENDING");
-        rcaPageRepository.save(rcaPage);
-        
-        processPage(pageId);
+        // Reuse the body we just fetched instead of fetching the page again;
+        // manual ingestion always reprocesses, even if the fingerprint is unchanged
+        processInline(new PageWork(page, true));
     }
     
+    // Not transactional: the persist stage commits on its own, and an outer transaction would hold a connection
+    // across the embedding calls and delay that commit past the cache invalidation that follows it
     @Override
-    @Transactional
     public void processPage(String pageId) {
-        // This is for external calls - uses Spring's @Transactional
-        processPageInternal(pageId);
+        processInline(new PageWork(pageId));
     }
     
     /**
-     * Internal method for processing page - called within transactionTemplate for internal calls
+     * External calls run the pipeline stages inline on the caller's thread
      */
-    private void processPageInternal(String pageId) {
-        RcaPage rcaPage = rcaPageRepository.findByPageId(pageId)
-                .orElseThrow(() -> new RuntimeException("RCA page not found: " + pageId));
-        
+    private void processInline(PageWork work) {
         try {
-            // Fetch page content
-            ConfluencePage page = confluenceService.fetchPageById(pageId);
+            fetchPage(work);
+            if (work.skipped) {
+                return;
+            }
+            parsePage(work);
+            chunkPage(work);
+            embedPage(work);
+            persistPage(work);
+        } catch (RuntimeException e) {
+            logger.error("Error processing page {}", work.pageId, e);
+            updatePageStatus(work.pageId, "ERROR", e.getMessage());
+            throw e;
+        }
+    }
+    
+    /**
+     * Fetch stage: make sure the page body is loaded (network-bound) and skip pages whose
+     * fingerprint (Confluence version, then body hash) matches what was last embedded, as long as the
+     * embedding model, dimension and chunking settings are also the ones it was embedded with.
+     * Bodies that came with the listing are used as-is; only lightweight listings fetch them here.
+     */
+    private void fetchPage(PageWork work) {
+        RcaPage existing = rcaPageRepository.findByPageId(work.pageId).orElse(null);
+        boolean embedded = !work.force && existing != null && "EMBEDDED".equals(existing.getStatus())
+                && embeddingFingerprint.equals(existing.getEmbeddingFingerprint());
+        
+        ConfluencePage listing = work.listing;
+        if (embedded && listing != null && listing.getVersion() != null
+                && listing.getVersion().equals(existing.getContentVersion())) {
+            savePageMetadata(listing, existing, true);
+            work.skipped = true;
+            return;
+        }
+        
+        ConfluencePage page = listing != null && listing.getBody() != null ? listing : null;
+        if (page == null) {
+            page = confluenceService.fetchPageById(work.pageId);
             if (page == null) {
-                throw new RuntimeException("Confluence page not found: " + pageId);
+                throw new RuntimeException("Confluence page not found: " + work.pageId);
+            }
+        }
+        work.page = page;
+        work.contentHash = sha256(page.getBody());
+        
+        // A new version with an identical body (e.g. a title-only edit) does not need re-embedding
+        boolean unchanged = embedded && work.contentHash.equals(existing.getContentHash());
+        savePageMetadata(page, existing, unchanged);
+        work.skipped = unchanged;
+    }
+    
+    /**
+     * Parse stage: extract the RCA sections from the storage-format HTML (CPU-bound)
+     */
+    private void parsePage(PageWork work) {
+        work.parsed = documentParserService.parseDocument(work.page);
+    }
+    
+    /**
+     * Chunk stage: split symptoms and root cause into overlapping chunks (CPU-bound)
+     */
+    private void chunkPage(PageWork work) {
+        ParsedRcaDto parsedRca = work.parsed;
+        if (parsedRca.getSymptoms() != null && !parsedRca.getSymptoms().isEmpty()) {
+            work.chunks.put("SYMPTOMS", documentParserService.chunkContent(
+                    parsedRca.getSymptoms(), chunkSize, chunkOverlap));
+        }
+        if (parsedRca.getRootCause() != null && !parsedRca.getRootCause().isEmpty()) {
+            work.chunks.put("ROOT_CAUSE", documentParserService.chunkContent(
+                    parsedRca.getRootCause(), chunkSize, chunkOverlap));
+        }
+    }
+    
+    /**
+     * Embed stage: embed all chunks of the page in one batched call (network-bound).
+     * A chunk without a vector fails the page, so it is retried instead of being stamped as embedded.
+     */
+    private void embedPage(PageWork work) {
+        List<String> allChunks = work.chunks.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        if (allChunks.isEmpty()) {
+            return;
+        }
+        
+        List<float[]> embeddings = embeddingService.embedAll(allChunks);
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < allChunks.size(); i++) {
+            if (i >= embeddings.size() || embeddings.get(i) == null || embeddings.get(i).length == 0) {
+                missing.add(i);
             }
+        }
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("No embedding returned for chunks " + missing + " of "
+                    + allChunks.size() + " on page " + work.pageId);
+        }
+        int offset = 0;
+        for (Map.Entry<String, List<String>> entry : work.chunks.entrySet()) {
+            int size = entry.getValue().size();
+            work.embeddings.put(entry.getKey(), embeddings.subList(offset, offset + size));
+            offset += size;
+        }
+    }
+    
+    /**
+     * Persist stage: replace the parsed RCA and embeddings of the page in one transaction
+     */
+    private void persistPage(PageWork work) {
+        transactionTemplate.executeWithoutResult(status -> {
+            String pageId = work.pageId;
+            RcaPage rcaPage = rcaPageRepository.findByPageId(pageId)
+                    .orElseThrow(() -> new RuntimeException("RCA page not found: " + pageId));
             
-            // Parse document
-            ParsedRcaDto parsedRca = documentParserService.parseDocument(page);
+            ParsedRcaDto parsedRca = work.parsed;
             rcaPage.setParsedAt(LocalDateTime.now());
-            rcaPage.setStatus("PARSED");
-            rcaPageRepository.save(rcaPage);
             
             // Save or update parsed RCA (find existing by pageId to avoid duplicates)
             ParsedRca parsedRcaEntity = parsedRcaRepository.findByPageId(pageId)
@@ -257,34 +526,29 @@ public class IngestionServiceImpl implements IngestionService {
             parsedRcaEntity.setIncidentDate(parsedRca.getIncidentDate());
             parsedRcaRepository.save(parsedRcaEntity);
             
-            // Delete old embeddings
+            // Replace old embeddings: one bulk delete and one JDBC batch for all chunks of the page
+            long writeStart = System.nanoTime();
             embeddingRepository.deleteByPageId(pageId);
             
-            // Chunk and embed symptoms
-            if (parsedRca.getSymptoms() != null && !parsedRca.getSymptoms().isEmpty()) {
-                List<String> symptomChunks = documentParserService.chunkContent(
-                        parsedRca.getSymptoms(), chunkSize, chunkOverlap);
-                createEmbeddings(pageId, symptomChunks, "SYMPTOMS");
-            }
-            
-            // Chunk and embed root cause
-            if (parsedRca.getRootCause() != null && !parsedRca.getRootCause().isEmpty()) {
-                List<String> rootCauseChunks = documentParserService.chunkContent(
-                        parsedRca.getRootCause(), chunkSize, chunkOverlap);
-                createEmbeddings(pageId, rootCauseChunks, "ROOT_CAUSE");
+            List<RcaEmbedding> rows = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : work.chunks.entrySet()) {
+                rows.addAll(buildEmbeddingRows(rcaPage, parsedRca, entry.getValue(),
+                        work.embeddings.get(entry.getKey()), entry.getKey()));
             }
+            embeddingRepository.batchInsert(rows);
+            work.embeddingsWritten = rows.size();
+            work.embeddingWriteNanos = System.nanoTime() - writeStart;
             
             rcaPage.setEmbeddingGeneratedAt(LocalDateTime.now());
+            rcaPage.setContentVersion(work.page.getVersion());
+            rcaPage.setContentHash(work.contentHash);
+            rcaPage.setEmbeddingFingerprint(embeddingFingerprint);
             rcaPage.setStatus("EMBEDDED");
             rcaPageRepository.save(rcaPage);
-            
-        } catch (Exception e) {
-            logger.error("Error processing page {}", pageId, e);
-            rcaPage.setStatus("ERROR");
-            rcaPage.setErrorMessage(e.getMessage());
-            rcaPageRepository.save(rcaPage);
-            throw e;
-        }
+        });
+        // After commit, so no search can cache an answer computed from the old rows under the new generation
+        searchResultCache.invalidate();
+        summaryCache.invalidatePage(work.pageId);
     }
     
     private void updatePageStatus(String pageId, String status, String errorMessage) {
@@ -295,29 +559,25 @@ public class IngestionServiceImpl implements IngestionService {
         });
     }
     
-    private void createEmbeddings(String pageId, List<String> chunks, String chunkType) {
-        if (chunks.isEmpty()) {
-            return;
-        }
-        
-        // Generate embeddings in batch
-        List<List<Float>> embeddings = embeddingService.generateEmbeddings(chunks);
-        
-        // Save embeddings using native query with proper vector casting
+    private List<RcaEmbedding> buildEmbeddingRows(RcaPage rcaPage, ParsedRcaDto parsedRca, List<String> chunks,
+                                                  List<float[]> embeddings, String chunkType) {
+        List<RcaEmbedding> rows = new ArrayList<>(chunks.size());
         LocalDateTime now = LocalDateTime.now();
         for (int i = 0; i < chunks.size(); i++) {
-            if (i < embeddings.size() && !embeddings.get(i).isEmpty()) {
-                UUID id = UUID.randomUUID();
-                String embeddingStr = "[" + embeddings.get(i).stream()
-                        .map(f -> String.format("%.6f", f))
-                        .reduce((a, b) -> a + "," + b)
-                        .orElse("") + "]";
-                
-                embeddingRepository.insertWithVector(
-                    id, pageId, i, chunkType, chunks.get(i), embeddingStr, now, now
-                );
-            }
+            RcaEmbedding row = new RcaEmbedding();
+            row.setId(UUID.randomUUID());
+            row.setPageId(rcaPage.getPageId());
+            row.setSpaceKey(rcaPage.getSpaceKey());
+            row.setIncidentDate(parsedRca.getIncidentDate());
+            row.setChunkIndex(i);
+            row.setChunkType(chunkType);
+            row.setContent(chunks.get(i));
+            row.setEmbedding(embeddings.get(i));
+            row.setCreatedAt(now);
+            row.setUpdatedAt(now);
+            rows.add(row);
         }
+        return rows;
     }
     
     private SyncResponse convertToSyncResponse(SyncHistory syncHistory) {
@@ -330,8 +590,81 @@ public class IngestionServiceImpl implements IngestionService {
         response.setPagesFetched(syncHistory.getPagesFetched() != null ? syncHistory.getPagesFetched() : 0);
         response.setPagesProcessed(syncHistory.getPagesProcessed() != null ? syncHistory.getPagesProcessed() : 0);
         response.setPagesFailed(syncHistory.getPagesFailed() != null ? syncHistory.getPagesFailed() : 0);
+        response.setPagesSkipped(syncHistory.getPagesSkipped() != null ? syncHistory.getPagesSkipped() : 0);
+        long written = syncHistory.getEmbeddingsWritten() != null ? syncHistory.getEmbeddingsWritten() : 0;
+        long writeMs = syncHistory.getEmbeddingWriteMs() != null ? syncHistory.getEmbeddingWriteMs() : 0;
+        response.setEmbeddingsWritten((int) written);
+        response.setEmbeddingWriteRate(writeMs > 0 ? written * 1000.0 / writeMs : null);
         response.setEstimatedCompletionTime(syncHistory.getCompletedAt());
         return response;
     }
+    
+    /**
+     * A page travelling through the sync pipeline, accumulating the output of each stage
+     */
+    private static class PageWork {
+        private final String pageId;
+        private final ConfluencePage listing;
+        private final boolean force;
+        private boolean skipped;
+        private String contentHash;
+        private SpaceProgress spaceProgress;
+        private int embeddingsWritten;
+        private long embeddingWriteNanos;
+        private ConfluencePage page;
+        private ParsedRcaDto parsed;
+        private final Map<String, List<String>> chunks = new LinkedHashMap<>();
+        private final Map<String, List<float[]>> embeddings = new HashMap<>();
+        
+        private PageWork(ConfluencePage listing, boolean force) {
+            this.pageId = listing.getId();
+            this.listing = listing;
+            this.force = force;
+        }
+        
+        private PageWork(String pageId) {
+            this.pageId = pageId;
+            this.listing = null;
+            this.force = true;
+        }
+    }
+    
+    /**
+     * Per-space outcome of a sync, used to advance the incremental high-water mark
+     */
+    private static class SpaceProgress {
+        private final String spaceKey;
+        private volatile boolean complete = true;
+        private volatile boolean failed;
+        private LocalDateTime newestLastModified;
+        
+        private SpaceProgress(String spaceKey) {
+            this.spaceKey = spaceKey;
+        }
+        
+        private synchronized void pageDone(LocalDateTime lastModified) {
+            if (lastModified != null && (newestLastModified == null || lastModified.isAfter(newestLastModified))) {
+                newestLastModified = lastModified;
+            }
+        }
+    }
+    
+    /**
+     * Running totals of a sync, updated concurrently by the pipeline listener
+     */
+    private static class SyncCounters {
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicLong embeddingsWritten = new AtomicLong();
+        private final AtomicLong embeddingWriteNanos = new AtomicLong();
+        
+        private void applyTo(SyncHistory syncHistory) {
+            syncHistory.setPagesProcessed(processed.get());
+            syncHistory.setPagesFailed(failed.get());
+            syncHistory.setPagesSkipped(skipped.get());
+            syncHistory.setEmbeddingsWritten((int) embeddingsWritten.get());
+            syncHistory.setEmbeddingWriteMs(embeddingWriteNanos.get() / 1_000_000);
+        }
+    }
 }
-
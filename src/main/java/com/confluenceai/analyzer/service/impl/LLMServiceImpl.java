@@ -1,12 +1,18 @@
 package com.confluenceai.analyzer.service.impl;
 
+import com.confluenceai.analyzer.client.AiHttpClientFactory;
+import com.confluenceai.analyzer.client.CircuitBreaker;
 import com.confluenceai.analyzer.dto.SearchResult;
 import com.confluenceai.analyzer.service.LLMService;
+import com.theokanning.openai.Usage;
 import com.theokanning.openai.service.OpenAiService;
-import com.theokanning.openai.service.OpenAiService;
+import com.theokanning.openai.completion.chat.ChatCompletionChunk;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,59 +20,150 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 public class LLMServiceImpl implements LLMService {
     
     private static final Logger logger = LoggerFactory.getLogger(LLMServiceImpl.class);
     
+    private static final List<PromptContextBuilder.Section> SUMMARY_SECTIONS = List.of(
+            PromptContextBuilder.Section.SYMPTOMS,
+            PromptContextBuilder.Section.ROOT_CAUSE,
+            PromptContextBuilder.Section.RESOLUTION);
+    
+    private static final int FALLBACK_ROOT_CAUSE_TOKENS = 120;
+    
     private final OpenAiService openAiService;
+    private final OpenAiService streamingService;
+    private final CircuitBreaker circuitBreaker;
+    private final PromptContextBuilder contextBuilder;
+    private final SemanticSummaryCache answerCache;
+    private final MeterRegistry meterRegistry;
     private final String model;
     private final double temperature;
     private final int maxTokens;
     
     public LLMServiceImpl(
+            AiHttpClientFactory clientFactory,
+            PromptContextBuilder contextBuilder,
+            SemanticSummaryCache answerCache,
+            MeterRegistry meterRegistry,
             @Value("${llm.model}") String model,
             @Value("${llm.temperature:0.3}") double temperature,
             @Value("${llm.max-tokens:1000}") int maxTokens,
             @Value("${llm.api-key}") String apiKey) {
+        this.contextBuilder = contextBuilder;
+        this.answerCache = answerCache;
+        this.meterRegistry = meterRegistry;
         this.model = model;
         this.temperature = temperature;
         this.maxTokens = maxTokens;
-        this.openAiService = new OpenAiService(apiKey);
+        this.openAiService = clientFactory.openAi("llm", apiKey);
+        this.streamingService = clientFactory.openAiStreaming("llm", apiKey);
+        this.circuitBreaker = clientFactory.circuitBreaker("llm");
     }
     
     @Override
     public String generateSummary(String userQuery, List<SearchResult> results) {
+        return generateSummary(userQuery, results, null);
+    }
+    
+    @Override
+    public String generateSummary(String userQuery, List<SearchResult> results, float[] queryEmbedding) {
         if (results == null || results.isEmpty()) {
             return "No similar historical incidents found.";
         }
         
-        String context = buildContextFromResults(results);
-        String prompt = buildPrompt(userQuery, context);
+        // Without the query vector there is nothing to match phrasings on, so the cache is bypassed
+        long generation = answerCache.generation();
+        String cached = queryEmbedding != null ? answerCache.get("summary", results, queryEmbedding) : null;
+        if (cached != null) {
+            return cached;
+        }
         
+        String summary = complete("summary", summaryRequest(userQuery, results));
+        if (queryEmbedding != null) {
+            answerCache.put("summary", results, queryEmbedding, summary, generation);
+        }
+        return summary;
+    }
+    
+    @Override
+    public String streamSummary(String userQuery, List<SearchResult> results, float[] queryEmbedding,
+                                Consumer<String> onFragment) {
+        if (results == null || results.isEmpty()) {
+            String summary = "No similar historical incidents found.";
+            onFragment.accept(summary);
+            return summary;
+        }
+        
+        long generation = answerCache.generation();
+        String cached = queryEmbedding != null ? answerCache.get("summary", results, queryEmbedding) : null;
+        if (cached != null) {
+            onFragment.accept(cached);
+            return cached;
+        }
+        
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            throw new CircuitBreaker.CallNotPermittedException("llm");
+        }
+        // Chunks arrive on the OkHttp thread; blockingForEach runs the callback on the caller's thread
+        // and cancels the HTTP stream if the callback throws (e.g. the client went away) or the caller is interrupted
+        StringBuilder summary = new StringBuilder();
+        boolean[] consumerFailed = {false};
         try {
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
-                    "You are an expert SRE analyzing incident reports. Provide concise, accurate analysis based on historical data."));
-            messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
-            
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model(model)
-                    .messages(messages)
-                    .temperature(temperature)
-                    .maxTokens(maxTokens)
-                    .build();
-            
-            String response = openAiService.createChatCompletion(request)
-                    .getChoices().get(0).getMessage().getContent();
-            
-            return response;
-        } catch (Exception e) {
-            logger.error("Error generating LLM summary", e);
-            return "Error generating summary. Please try again.";
+            streamingService.streamChatCompletion(summaryRequest(userQuery, results))
+                    .blockingForEach((ChatCompletionChunk chunk) -> {
+                        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()
+                                || chunk.getChoices().get(0).getMessage() == null) {
+                            return;
+                        }
+                        String fragment = chunk.getChoices().get(0).getMessage().getContent();
+                        if (fragment != null && !fragment.isEmpty()) {
+                            summary.append(fragment);
+                            try {
+                                onFragment.accept(fragment);
+                            } catch (RuntimeException | Error e) {
+                                consumerFailed[0] = true;
+                                throw e;
+                            }
+                        }
+                    });
+        } catch (RuntimeException | Error e) {
+            // Errors are reported too, as in CircuitBreaker.execute, since an unreported probe keeps the breaker
+            // half-open. A consumer that gave up, or a caller that interrupted the wait, says nothing about the
+            // provider's health
+            if (consumerFailed[0] || e.getCause() instanceof InterruptedException) {
+                circuitBreaker.onSuccess(permit);
+            } else {
+                circuitBreaker.onFailure(permit);
+            }
+            throw e;
+        }
+        circuitBreaker.onSuccess(permit);
+        if (queryEmbedding != null) {
+            answerCache.put("summary", results, queryEmbedding, summary.toString(), generation);
         }
+        return summary.toString();
+    }
+    
+    private ChatCompletionRequest summaryRequest(String userQuery, List<SearchResult> results) {
+        String context = contextBuilder.build("summary", userQuery, results, SUMMARY_SECTIONS);
+        String prompt = buildPrompt(userQuery, context);
+        
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
+                "You are an expert SRE analyzing incident reports. Provide concise, accurate analysis based on historical data."));
+        messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
+        
+        return ChatCompletionRequest.builder()
+                .model(model)
+                .messages(messages)
+                .temperature(temperature)
+                .maxTokens(maxTokens)
+                .build();
     }
     
     @Override
@@ -75,11 +172,15 @@ public class LLMServiceImpl implements LLMService {
             return "No similar historical incidents found.";
         }
         
-        String context = results.stream()
-                .map(r -> String.format("RCA: %s\nRoot Cause: %s\n", 
-                        r.getTitle(), 
-                        r.getFullRCA() != null ? r.getFullRCA().getRootCause() : ""))
-                .collect(Collectors.joining("\n"));
+        // The prompt does not include a query, so answers are reused on the result pages alone
+        long generation = answerCache.generation();
+        String cached = answerCache.get("root_cause", results, null);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String context = contextBuilder.build("root_cause", null, results,
+                List.of(PromptContextBuilder.Section.ROOT_CAUSE));
         
         String prompt = String.format("""
                 Based on the following historical Root Cause Analysis documents, suggest the most likely root cause for a similar incident.
@@ -90,43 +191,72 @@ public class LLMServiceImpl implements LLMService {
                 Provide a concise root cause analysis. If no clear pattern emerges, state: "No similar historical incidents found."
                 """, context);
         
-        try {
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
-                    "You are an expert SRE. Analyze root causes from historical incidents."));
-            messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
-            
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model(model)
-                    .messages(messages)
-                    .temperature(temperature)
-                    .maxTokens(maxTokens)
-                    .build();
-            
-            return openAiService.createChatCompletion(request)
-                    .getChoices().get(0).getMessage().getContent();
-        } catch (Exception e) {
-            logger.error("Error synthesizing root cause", e);
-            return "Error synthesizing root cause. Please try again.";
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
+                "You are an expert SRE. Analyze root causes from historical incidents."));
+        messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
+        
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(model)
+                .messages(messages)
+                .temperature(temperature)
+                .maxTokens(maxTokens)
+                .build();
+        
+        String rootCause = complete("root_cause", request);
+        answerCache.put("root_cause", results, null, rootCause, generation);
+        return rootCause;
+    }
+    
+    /**
+     * The most relevant sentences of the best-ranked root cause, followed by the matched incidents,
+     * in the same layout as a model summary
+     */
+    @Override
+    public String fallbackSummary(String userQuery, List<SearchResult> results) {
+        if (results == null || results.isEmpty()) {
+            return "No similar historical incidents found.";
+        }
+        
+        List<SearchResult> pages = PromptContextBuilder.distinctPages(results);
+        StringBuilder summary = new StringBuilder("AI summary unavailable; extracted from the most similar historical RCAs.\n");
+        pages.stream()
+                .filter(r -> r.getFullRCA() != null && r.getFullRCA().getRootCause() != null
+                        && !r.getFullRCA().getRootCause().isBlank())
+                .findFirst()
+                .ifPresent(r -> summary.append(String.format("- Suggested Root Cause: %s (from \"%s\")\n",
+                        PromptContextBuilder.extract(r.getFullRCA().getRootCause(), userQuery, FALLBACK_ROOT_CAUSE_TOKENS),
+                        r.getTitle())));
+        summary.append("- Similar Historical Incidents:\n");
+        for (SearchResult page : pages) {
+            summary.append(String.format("  - %s (Similarity: %.2f): %s\n", page.getTitle(),
+                    page.getSimilarityScore() != null ? page.getSimilarityScore() : 0.0, page.getConfluenceUrl()));
+        }
+        return summary.toString();
+    }
+    
+    // Fails fast with CallNotPermittedException while the provider's circuit is open
+    private String complete(String operation, ChatCompletionRequest request) {
+        ChatCompletionResult result = circuitBreaker.execute(() -> openAiService.createChatCompletion(request));
+        recordUsage(operation, result.getUsage());
+        return result.getChoices().get(0).getMessage().getContent();
+    }
+    
+    // Provider-reported counts, to compare with the estimates recorded in llm.context.tokens
+    private void recordUsage(String operation, Usage usage) {
+        if (usage == null) {
+            return;
         }
+        tokenSummary(operation, "prompt").record(usage.getPromptTokens());
+        tokenSummary(operation, "completion").record(usage.getCompletionTokens());
     }
     
-    private String buildContextFromResults(List<SearchResult> results) {
-        return results.stream()
-                .map(r -> String.format("""
-                        - RCA: %s (Similarity: %.2f)
-                          Symptoms: %s
-                          Root Cause: %s
-                          Resolution: %s
-                          Link: %s
-                        """,
-                        r.getTitle(),
-                        r.getSimilarityScore(),
-                        r.getFullRCA() != null ? r.getFullRCA().getSymptoms() : "",
-                        r.getFullRCA() != null ? r.getFullRCA().getRootCause() : "",
-                        r.getFullRCA() != null ? r.getFullRCA().getResolution() : "",
-                        r.getConfluenceUrl()))
-                .collect(Collectors.joining("\n"));
+    private DistributionSummary tokenSummary(String operation, String type) {
+        return DistributionSummary.builder("llm.tokens")
+                .description("Tokens billed per chat completion, as reported by the provider")
+                .tag("operation", operation)
+                .tag("type", type)
+                .register(meterRegistry);
     }
     
     private String buildPrompt(String userQuery, String context) {
@@ -0,0 +1,447 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.repository.EmbeddingFilter;
+import com.confluenceai.analyzer.repository.EmbeddingMatch;
+import com.confluenceai.analyzer.service.VectorStore;
+import com.confluenceai.analyzer.vector.HnswIndex;
+import com.confluenceai.analyzer.vector.VectorCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process HNSW index mirroring {@code rca_embeddings}, enabled with {@code search.vector-store=local}.
+ *
+ * <p>Meant for read replicas: searches are answered from local memory (graph on heap, vectors in a
+ * memory-mapped file under {@code search.local-index.dir}) while PostgreSQL stays the system of record.
+ * A background task pulls rows changed since the last checkpoint, tombstones the chunks that a page
+ * re-embed replaced, and periodically reconciles per-page counts to catch deletions. Once tombstones
+ * exceed {@code search.local-index.compact-ratio} the graph is rebuilt from the live nodes and swapped in.
+ * Until the first refresh completes, searches fall back to {@link PostgresVectorStore}.
+ * With {@code search.local-index.quantized=true} the graph is searched over int8 codes and the
+ * candidates are re-ranked on the float vectors (see {@link HnswIndex}).
+ *
+ * <p>Only the nearest-neighbour lookup is served locally. Keyword search, per-page chunk scoring and the
+ * hydration of results into full RCAs still query PostgreSQL, so a replica using this store keeps a
+ * database connection and sees lower, not zero, database load.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "search.vector-store", havingValue = "local")
+public class LocalVectorStore implements VectorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalVectorStore.class);
+
+    private static final String META_FILE = "index.meta";
+    private static final int FETCH_SIZE = 2000;
+    // Rows committed late with an earlier updated_at are still picked up by re-reading this window
+    private static final long OVERLAP_SECONDS = 300;
+    private static final int RECONCILE_EVERY = 20;
+
+    private static final String CHANGED_ROWS_SQL = """
+        SELECT id, page_id, chunk_type, chunk_index, content, space_key, incident_date,
+               embedding::text AS embedding, updated_at
+        FROM rca_embeddings
+        WHERE (updated_at, id) > (?, ?)
+        ORDER BY updated_at, id
+        LIMIT ?
+        """;
+
+    private static final String PAGE_ROWS_SQL = """
+        SELECT id, page_id, chunk_type, chunk_index, content, space_key, incident_date,
+               embedding::text AS embedding, updated_at
+        FROM rca_embeddings
+        WHERE page_id = ANY(?)
+        """;
+
+    private final PostgresVectorStore fallback;
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchResultCache searchResultCache;
+    private final Path directory;
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final long refreshSeconds;
+    private final double compactRatio;
+    private final boolean quantized;
+    private final ScheduledExecutorService refresher;
+
+    private volatile HnswIndex index;
+    private volatile boolean ready;
+    private LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private int refreshCount;
+
+    public LocalVectorStore(
+            PostgresVectorStore fallback,
+            JdbcTemplate jdbcTemplate,
+            SearchResultCache searchResultCache,
+            @Value("${search.local-index.dir:./data/vector-index}") String directory,
+            @Value("${embedding.dimension:768}") int dimension,
+            @Value("${search.local-index.m:16}") int m,
+            @Value("${search.local-index.ef-construction:100}") int efConstruction,
+            @Value("${search.local-index.ef-search:64}") int efSearch,
+            @Value("${search.local-index.refresh-seconds:30}") long refreshSeconds,
+            @Value("${search.local-index.compact-ratio:0.25}") double compactRatio,
+            @Value("${search.local-index.quantized:false}") boolean quantized) {
+        this.fallback = fallback;
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchResultCache = searchResultCache;
+        this.directory = Path.of(directory);
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.refreshSeconds = Math.max(1, refreshSeconds);
+        this.compactRatio = compactRatio;
+        this.quantized = quantized;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vector-index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher.execute(this::open);
+        refresher.scheduleWithFixedDelay(this::refreshSafely, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public List<EmbeddingMatch> findNearest(float[] queryVector, int limit, EmbeddingFilter filter, SearchRequest.Recall recall) {
+        HnswIndex current = index;
+        if (!ready || current == null || queryVector.length != current.dimension()) {
+            return fallback.findNearest(queryVector, limit, filter, recall);
+        }
+        // Scaled from what the query needs, as for the PostgreSQL index (see VectorIndexManager)
+        int base = Math.max(efSearch, limit);
+        int ef = switch (recall != null ? recall : SearchRequest.Recall.BALANCED) {
+            case FAST -> Math.max(limit, Math.max(16, base / 2));
+            case BALANCED -> base;
+            case ACCURATE -> base * 4;
+        };
+        if (filter.isEmpty()) {
+            return toMatches(current.search(queryVector, limit, ef, node -> true));
+        }
+        // A filter discards part of the candidate list: widen it until enough chunks pass,
+        // or until the whole graph has been considered
+        List<HnswIndex.Match> found = List.of();
+        for (int attempt = ef * 2; ; attempt *= 4) {
+            found = current.search(queryVector, limit, attempt,
+                    node -> filter.matches(node.chunkType(), node.spaceKey(), node.incidentDate()));
+            if (found.size() >= limit || attempt >= current.size()) {
+                return toMatches(found);
+            }
+        }
+    }
+
+    private static List<EmbeddingMatch> toMatches(List<HnswIndex.Match> found) {
+        List<EmbeddingMatch> matches = new ArrayList<>(found.size());
+        for (HnswIndex.Match match : found) {
+            matches.add(new LocalMatch(match.node(), match.similarity()));
+        }
+        return matches;
+    }
+    
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    /**
+     * The vector file and checkpoint of the local index, or PostgreSQL's index while searches still fall back to it
+     */
+    @Override
+    public long indexSizeBytes() {
+        HnswIndex current = index;
+        if (!ready || current == null) {
+            return fallback.indexSizeBytes();
+        }
+        try {
+            Path meta = directory.resolve(META_FILE);
+            return Files.size(current.vectorFile()) + (Files.exists(meta) ? Files.size(meta) : 0);
+        } catch (IOException e) {
+            logger.debug("Could not size local vector index: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+        try {
+            refresher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        HnswIndex current = index;
+        if (current != null) {
+            checkpoint(current);
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close local vector index: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Load the last checkpoint from disk, or start empty if there is none or it does not match the config.
+     */
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            Path meta = directory.resolve(META_FILE);
+            if (Files.exists(meta)) {
+                try {
+                    HnswIndex.Loaded loaded = HnswIndex.load(meta, quantized);
+                    if (loaded.index().dimension() == dimension) {
+                        index = loaded.index();
+                        watermark = LocalDateTime.parse(loaded.tag());
+                        logger.info("Loaded local vector index: {} nodes, watermark {}", index.size(), watermark);
+                        removeStaleVectorFiles();
+                        return;
+                    }
+                    loaded.index().close();
+                    logger.info("Local vector index has dimension {}, expected {}; rebuilding",
+                            loaded.index().dimension(), dimension);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not load local vector index, rebuilding: {}", e.getMessage());
+                }
+            }
+            index = HnswIndex.create(directory.resolve("vectors-0.f32"), dimension, m, efConstruction, quantized);
+            removeStaleVectorFiles();
+        } catch (IOException e) {
+            logger.error("Local vector index unavailable, searches stay on PostgreSQL", e);
+        }
+    }
+
+    // Vector files left behind by a compaction whose checkpoint failed
+    private void removeStaleVectorFiles() throws IOException {
+        Path inUse = index.vectorFile();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "vectors-*.f32")) {
+            for (Path file : files) {
+                if (!file.equals(inUse)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Local vector index refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pull every row changed since the watermark (keyset paged), add new chunks and tombstone chunks
+     * that a re-embedded page no longer has. A page's rows are replaced in one transaction, so all
+     * current rows of a changed page are seen in the same pass.
+     */
+    private void refresh() {
+        HnswIndex current = index;
+        if (current == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, Set<UUID>> pagesSeen = new HashMap<>();
+        LocalDateTime cursorTime = watermark.minusSeconds(OVERLAP_SECONDS);
+        UUID cursorId = new UUID(0, 0);
+        LocalDateTime newest = watermark;
+        int added = 0;
+
+        while (true) {
+            List<Row> rows = jdbcTemplate.query(CHANGED_ROWS_SQL, (rs, rowNum) -> mapRow(rs),
+                    Timestamp.valueOf(cursorTime), cursorId, FETCH_SIZE);
+            for (Row row : rows) {
+                pagesSeen.computeIfAbsent(row.pageId(), key -> new HashSet<>()).add(row.id());
+                if (addRow(current, row)) {
+                    added++;
+                }
+                if (row.updatedAt().isAfter(newest)) {
+                    newest = row.updatedAt();
+                }
+            }
+            if (rows.size() < FETCH_SIZE) {
+                break;
+            }
+            Row last = rows.get(rows.size() - 1);
+            cursorTime = last.updatedAt();
+            cursorId = last.id();
+        }
+
+        int removed = 0;
+        for (Map.Entry<String, Set<UUID>> page : pagesSeen.entrySet()) {
+            removed += current.removePageExcept(page.getKey(), page.getValue());
+        }
+        if (++refreshCount % RECONCILE_EVERY == 0) {
+            removed += reconcile(current);
+        }
+        watermark = newest;
+
+        if (added > 0 || removed > 0) {
+            // Answers cached before this refresh were computed from the previous index contents
+            searchResultCache.invalidate();
+        }
+        if (added > 0 || removed > 0 || !ready) {
+            HnswIndex compacted = compactIfNeeded(current);
+            if (compacted == current) {
+                checkpoint(current);
+            }
+            current = compacted;
+            logger.info("Local vector index refreshed in {} ms: +{} -{} ({} nodes, {} tombstoned)",
+                    System.currentTimeMillis() - start, added, removed, current.size(), current.deletedCount());
+        }
+        ready = true;
+    }
+
+    /**
+     * Compare live chunk counts per page with the database to catch changes that never passed the
+     * watermark, such as deleted pages. Mismatched pages are re-read and replaced.
+     */
+    private int reconcile(HnswIndex current) {
+        Map<String, Integer> database = new HashMap<>();
+        jdbcTemplate.query("SELECT page_id, COUNT(*) FROM rca_embeddings GROUP BY page_id",
+                rs -> { database.put(rs.getString(1), rs.getInt(2)); });
+        Map<String, Integer> local = current.liveCountsByPage();
+        Set<String> pages = new HashSet<>(local.keySet());
+        pages.addAll(database.keySet());
+
+        List<String> mismatched = new ArrayList<>();
+        for (String pageId : pages) {
+            if (!Objects.equals(local.get(pageId), database.get(pageId))) {
+                mismatched.add(pageId);
+            }
+        }
+        if (mismatched.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Set<UUID>> rowsByPage = new HashMap<>();
+        mismatched.forEach(pageId -> rowsByPage.put(pageId, new HashSet<>()));
+        jdbcTemplate.query(PAGE_ROWS_SQL, ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", mismatched.toArray())),
+                rs -> {
+                    Row row = mapRow(rs);
+                    rowsByPage.get(row.pageId()).add(row.id());
+                    addRow(current, row);
+                });
+        int removed = 0;
+        for (Map.Entry<String, Set<UUID>> page : rowsByPage.entrySet()) {
+            removed += current.removePageExcept(page.getKey(), page.getValue());
+        }
+        logger.info("Reconciled {} pages of the local vector index with the database", mismatched.size());
+        return removed;
+    }
+
+    private Row mapRow(ResultSet rs) throws SQLException {
+        return new Row(
+                rs.getObject("id", UUID.class),
+                rs.getString("page_id"),
+                rs.getString("chunk_type"),
+                rs.getInt("chunk_index"),
+                rs.getString("content"),
+                rs.getString("space_key"),
+                rs.getTimestamp("incident_date") != null ? rs.getTimestamp("incident_date").toLocalDateTime() : null,
+                rs.getString("embedding"),
+                rs.getTimestamp("updated_at").toLocalDateTime());
+    }
+
+    // Adds the chunk unless it is already live, in which case only its metadata is refreshed;
+    // returns whether a vector was added
+    private boolean addRow(HnswIndex current, Row row) {
+        if (row.embedding() == null) {
+            return false;
+        }
+        HnswIndex.Node node = new HnswIndex.Node(row.id(), row.pageId(), row.chunkType(), row.chunkIndex(),
+                row.content(), row.spaceKey(), row.incidentDate());
+        if (current.contains(row.id())) {
+            current.updateNode(node);
+            return false;
+        }
+        float[] vector = VectorCodec.parseText(row.embedding());
+        if (vector.length != dimension) {
+            return false;
+        }
+        current.add(node, vector);
+        return true;
+    }
+
+    private HnswIndex compactIfNeeded(HnswIndex current) {
+        if (current.size() < 1000 || current.deletedCount() < current.size() * compactRatio) {
+            return current;
+        }
+        String previousName = current.vectorFile().getFileName().toString();
+        int generation = Integer.parseInt(previousName.substring("vectors-".length(), previousName.indexOf(".f32"))) + 1;
+        try {
+            long start = System.currentTimeMillis();
+            HnswIndex compacted = current.compactInto(directory.resolve("vectors-" + generation + ".f32"));
+            index = compacted;
+            // The old file stays until the checkpoint points at the new one, so a crash in between
+            // leaves a loadable index
+            current.close();
+            if (checkpoint(compacted)) {
+                Files.deleteIfExists(current.vectorFile());
+            }
+            logger.info("Compacted local vector index to {} nodes in {} ms", compacted.size(), System.currentTimeMillis() - start);
+            return compacted;
+        } catch (IOException e) {
+            logger.warn("Local vector index compaction failed: {}", e.getMessage());
+            return current;
+        }
+    }
+
+    // The checkpoint tag is the watermark, so a restart resumes from where this replica left off
+    private boolean checkpoint(HnswIndex current) {
+        try {
+            current.save(directory.resolve(META_FILE), watermark.toString());
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to checkpoint local vector index: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private record Row(UUID id, String pageId, String chunkType, int chunkIndex, String content,
+                       String spaceKey, LocalDateTime incidentDate, String embedding, LocalDateTime updatedAt) {}
+
+    private record LocalMatch(HnswIndex.Node node, float similarity) implements EmbeddingMatch {
+        @Override public UUID getId() { return node.id(); }
+        @Override public String getPageId() { return node.pageId(); }
+        @Override public String getChunkType() { return node.chunkType(); }
+        @Override public Integer getChunkIndex() { return node.chunkIndex(); }
+        @Override public String getContent() { return node.content(); }
+        @Override public Double getScore() { return (double) similarity; }
+    }
+}
@@ -0,0 +1,62 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.repository.EmbeddingFilter;
+import com.confluenceai.analyzer.repository.EmbeddingMatch;
+import com.confluenceai.analyzer.repository.RcaEmbeddingRepository;
+import com.confluenceai.analyzer.service.VectorStore;
+import com.confluenceai.analyzer.vector.VectorCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Runs the ANN search in PostgreSQL against the index managed by {@link VectorIndexManager}.
+ * When that index is quantized, the search is two-phase: {@code search.index.rerank-factor} times the
+ * requested rows are taken from the quantized index and re-ranked on the full-precision vectors.
+ */
+@Component
+public class PostgresVectorStore implements VectorStore {
+    
+    private final RcaEmbeddingRepository embeddingRepository;
+    private final VectorIndexManager indexManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int rerankFactor;
+    
+    public PostgresVectorStore(
+            RcaEmbeddingRepository embeddingRepository,
+            VectorIndexManager indexManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${search.index.rerank-factor:4}") int rerankFactor) {
+        this.embeddingRepository = embeddingRepository;
+        this.indexManager = indexManager;
+        // Index tuning is SET LOCAL, so the tuning and the query share one read-only transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rerankFactor = Math.max(1, rerankFactor);
+    }
+    
+    @Override
+    public List<EmbeddingMatch> findNearest(float[] queryVector, int limit, EmbeddingFilter filter, SearchRequest.Recall recall) {
+        String vectorString = VectorCodec.toText(queryVector);
+        int shortList = indexManager.isQuantized() ? limit * rerankFactor : limit;
+        return readOnlyTransaction.execute(status -> {
+            indexManager.applyQueryTuning(recall, shortList, !filter.isEmpty());
+            return embeddingRepository.findNearest(vectorString, indexManager.getQuantization(),
+                    indexManager.getDimension(), filter, shortList, limit);
+        });
+    }
+    
+    @Override
+    public String getName() {
+        return "postgres";
+    }
+    
+    @Override
+    public long indexSizeBytes() {
+        return indexManager.indexSizeBytes();
+    }
+}
@@ -0,0 +1,232 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.ParsedRcaDto;
+import com.confluenceai.analyzer.dto.SearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Assembles the "Historical RCAs" block of an LLM prompt within a token budget.
+ *
+ * <p>Results are deduplicated by page (the best-ranked chunk wins), then each page in rank order gets an equal
+ * share of what is left of the budget, so tokens a short RCA does not use flow to the ones after it. A section
+ * that does not fit its share keeps the sentences sharing most words with the query, in their original order.
+ * Token counts are estimated at four characters per token, which is close for English text; the provider's
+ * reported usage is recorded next to the estimate in {@code llm.tokens}.
+ */
+@Component
+public class PromptContextBuilder {
+
+    public enum Section {
+        SYMPTOMS("Symptoms", ParsedRcaDto::getSymptoms),
+        ROOT_CAUSE("Root Cause", ParsedRcaDto::getRootCause),
+        RESOLUTION("Resolution", ParsedRcaDto::getResolution);
+
+        private final String label;
+        private final Function<ParsedRcaDto, String> text;
+
+        Section(String label, Function<ParsedRcaDto, String> text) {
+            this.label = label;
+            this.text = text;
+        }
+    }
+
+    private static final Pattern SENTENCE_BREAK = Pattern.compile("(?<=[.!?])\\s+|\\s*\\n+\\s*");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "with", "was", "were", "are", "from", "that", "this", "has", "have", "not", "but");
+
+    private final int maxTokens;
+    private final MeterRegistry meterRegistry;
+
+    public PromptContextBuilder(
+            MeterRegistry meterRegistry,
+            @Value("${llm.context.max-tokens:2500}") int maxTokens) {
+        this.meterRegistry = meterRegistry;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * @param operation metric tag naming the prompt being built
+     * @param query text sentences are ranked against; null keeps the leading sentences
+     */
+    public String build(String operation, String query, List<SearchResult> results, List<Section> sections) {
+        List<SearchResult> pages = distinctPages(results);
+        Set<String> queryTerms = terms(query);
+        int remaining = maxTokens;
+        int truncatedSections = 0;
+        int droppedPages = 0;
+        StringBuilder context = new StringBuilder();
+
+        for (int i = 0; i < pages.size(); i++) {
+            SearchResult result = pages.get(i);
+            String header = String.format("- RCA: %s (Similarity: %.2f)%n", result.getTitle(),
+                    result.getSimilarityScore() != null ? result.getSimilarityScore() : 0.0);
+            String footer = String.format("  Link: %s%n", result.getConfluenceUrl());
+            int share = remaining / (pages.size() - i);
+            int available = share - estimateTokens(header) - estimateTokens(footer);
+            if (available <= 0) {
+                droppedPages = pages.size() - i;
+                break;
+            }
+
+            StringBuilder entry = new StringBuilder(header);
+            List<Section> present = sections.stream()
+                    .filter(section -> !text(result, section).isBlank())
+                    .toList();
+            for (int s = 0; s < present.size(); s++) {
+                Section section = present.get(s);
+                String label = "  " + section.label + ": ";
+                int sectionBudget = available / (present.size() - s) - estimateTokens(label);
+                String full = text(result, section).strip();
+                String selected = select(full, queryTerms, sectionBudget);
+                if (selected.isEmpty()) {
+                    truncatedSections++;
+                    continue;
+                }
+                if (selected.length() < full.length()) {
+                    truncatedSections++;
+                }
+                String line = label + selected + System.lineSeparator();
+                entry.append(line);
+                available -= estimateTokens(line);
+            }
+            entry.append(footer);
+
+            if (!context.isEmpty()) {
+                context.append(System.lineSeparator());
+            }
+            context.append(entry);
+            remaining -= estimateTokens(entry.toString());
+        }
+
+        String built = context.toString();
+        DistributionSummary.builder("llm.context.tokens")
+                .description("Estimated tokens of retrieved RCA context placed in a prompt")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(estimateTokens(built));
+        if (truncatedSections > 0) {
+            contextCounter("llm.context.truncated.sections", operation).increment(truncatedSections);
+        }
+        if (droppedPages > 0) {
+            contextCounter("llm.context.dropped.pages", operation).increment(droppedPages);
+        }
+        return built;
+    }
+
+    /**
+     * Rough token count for budgeting, about four characters per token
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * The sentences of {@code text} that best match {@code query} within {@code budget} tokens, in document order
+     */
+    public static String extract(String text, String query, int budget) {
+        return text == null ? "" : select(text.strip(), terms(query), budget);
+    }
+
+    static List<SearchResult> distinctPages(List<SearchResult> results) {
+        Map<String, SearchResult> byPage = new LinkedHashMap<>();
+        for (SearchResult result : results) {
+            String pageId = result.getPageId() != null ? result.getPageId() : result.getTitle();
+            byPage.putIfAbsent(pageId, result);
+        }
+        return new ArrayList<>(byPage.values());
+    }
+
+    private static String text(SearchResult result, Section section) {
+        if (result.getFullRCA() == null) {
+            return "";
+        }
+        String text = section.text.apply(result.getFullRCA());
+        return text != null ? text : "";
+    }
+
+    /**
+     * The whole text if it fits, otherwise the best-matching sentences that fit, in document order.
+     * A single sentence longer than the budget is cut at the budget.
+     */
+    private static String select(String text, Set<String> queryTerms, int budget) {
+        if (budget <= 0) {
+            return "";
+        }
+        if (estimateTokens(text) <= budget) {
+            return text;
+        }
+
+        String[] sentences = SENTENCE_BREAK.split(text);
+        List<Integer> ranked = new ArrayList<>();
+        for (int i = 0; i < sentences.length; i++) {
+            ranked.add(i);
+        }
+        ranked.sort(Comparator.comparingInt((Integer i) -> -overlap(sentences[i], queryTerms))
+                .thenComparingInt(i -> i));
+
+        boolean[] keep = new boolean[sentences.length];
+        int used = 0;
+        for (int i : ranked) {
+            int cost = estimateTokens(sentences[i]) + 1;
+            if (used + cost <= budget) {
+                keep[i] = true;
+                used += cost;
+            }
+        }
+
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < sentences.length; i++) {
+            if (keep[i]) {
+                selected.add(sentences[i]);
+            }
+        }
+        if (selected.isEmpty()) {
+            String best = sentences[ranked.get(0)];
+            return best.substring(0, Math.min(best.length(), Math.max(0, budget * 4 - 3))) + "...";
+        }
+        return String.join(" ", selected);
+    }
+
+    private static int overlap(String sentence, Set<String> queryTerms) {
+        if (queryTerms.isEmpty()) {
+            return 0;
+        }
+        Set<String> sentenceTerms = terms(sentence);
+        sentenceTerms.retainAll(queryTerms);
+        return sentenceTerms.size();
+    }
+
+    private static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(term -> term.length() > 2 && !STOP_WORDS.contains(term))
+                .forEach(terms::add);
+        return terms;
+    }
+
+    private Counter contextCounter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,154 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.dto.SearchResponse;
+import com.confluenceai.analyzer.dto.SearchResult;
+import com.confluenceai.analyzer.repository.EmbeddingFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory LRU of complete search answers (results and summary), so the same question asked by many
+ * people during an incident is embedded, searched and summarised once.
+ *
+ * <p>Keys are the endpoint, the normalised query text, topK, filters and recall hint. Every entry records
+ * the index generation it was computed against; {@link #invalidate()} bumps the generation whenever
+ * ingestion changes embeddings, which retires every older entry at once. The TTL is only a backstop.
+ * Callers read {@link #generation()} before searching and pass it to {@link #put}, so an answer computed
+ * while a page was being re-embedded is never stored as current.
+ *
+ * <p>The generation is process-local: ingestion bumps it in the instance that ran it, and a replica
+ * answering from {@link LocalVectorStore} bumps its own when a refresh applies changes. Replicas that
+ * search PostgreSQL directly and never ingest only see other instances' changes once the TTL expires.
+ */
+@Component
+public class SearchResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultCache.class);
+
+    public record Key(String endpoint, String query, int topK, EmbeddingFilter filter, SearchRequest.Recall recall) {}
+
+    private record Entry(long generation, long storedAtMillis, List<SearchResult> results, SearchResponse.Summary summary) {}
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stale;
+
+    public SearchResultCache(
+            MeterRegistry meterRegistry,
+            @Value("${search.cache.enabled:true}") boolean enabled,
+            @Value("${search.cache.max-entries:1000}") int maxEntries,
+            @Value("${search.cache.ttl-seconds:900}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.stale = lookupCounter(meterRegistry, "stale");
+    }
+
+    public static Key key(String endpoint, SearchRequest request, int topK) {
+        return new Key(endpoint, normalize(request.getQuery()), topK,
+                EmbeddingFilter.of(request.getFilterBy()),
+                request.getRecall() != null ? request.getRecall() : SearchRequest.Recall.BALANCED);
+    }
+
+    /**
+     * Case, Unicode form, punctuation and whitespace differences do not change the search,
+     * so pasted variants of the same text share an entry.
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return folded.replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * A fresh copy of the cached answer, or null. The copy carries no timings or execution time.
+     */
+    public SearchResponse get(Key key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !isCurrent(entry)) {
+                entries.remove(key);
+                stale.increment();
+                return null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        SearchResponse response = new SearchResponse();
+        response.setResults(entry.results());
+        response.setSummary(entry.summary());
+        return response;
+    }
+
+    /**
+     * Store an answer computed against {@code generation}; ignored if ingestion has moved on since.
+     */
+    public void put(Key key, long generation, List<SearchResult> results, SearchResponse.Summary summary) {
+        if (!enabled || generation != this.generation.get()) {
+            return;
+        }
+        Entry entry = new Entry(generation, System.currentTimeMillis(), List.copyOf(results), summary);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Called after embeddings were written or removed; every cached answer may now be wrong.
+     */
+    public void invalidate() {
+        long current = generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+        logger.debug("Search result cache invalidated, generation {}", current);
+    }
+
+    private boolean isCurrent(Entry entry) {
+        return entry.generation() == generation.get()
+                && System.currentTimeMillis() - entry.storedAtMillis() < ttlMillis;
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("search.cache.lookups")
+                .description("Search result cache lookups by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -1,23 +1,50 @@
 package com.confluenceai.analyzer.service.impl;
 
+import com.confluenceai.analyzer.config.SearchExecutorConfig;
 import com.confluenceai.analyzer.dto.ParsedRcaDto;
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.dto.SearchResponse;
 import com.confluenceai.analyzer.dto.SearchResult;
-import com.confluenceai.analyzer.entity.RcaEmbedding;
+import com.confluenceai.analyzer.entity.ParsedRca;
 import com.confluenceai.analyzer.entity.RcaPage;
+import com.confluenceai.analyzer.repository.EmbeddingFilter;
+import com.confluenceai.analyzer.repository.EmbeddingMatch;
 import com.confluenceai.analyzer.repository.ParsedRcaRepository;
 import com.confluenceai.analyzer.repository.RcaEmbeddingRepository;
 import com.confluenceai.analyzer.repository.RcaPageRepository;
 import com.confluenceai.analyzer.service.EmbeddingService;
 import com.confluenceai.analyzer.service.SearchService;
+import com.confluenceai.analyzer.service.VectorStore;
+import com.confluenceai.analyzer.vector.VectorCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Hybrid search. The stages that wait on I/O run concurrently on virtual threads: the keyword query
+ * starts together with the query embedding, the vector query as soon as the embedding is ready, and
+ * the page and parsed-RCA lookups of hydration in parallel. Wall time per stage is reported in
+ * {@link SearchResponse#getTimings()}.
+ */
 @Service
 public class SearchServiceImpl implements SearchService {
     
@@ -27,59 +54,88 @@ public class SearchServiceImpl implements SearchService {
     private final RcaEmbeddingRepository embeddingRepository;
     private final RcaPageRepository pageRepository;
     private final ParsedRcaRepository parsedRcaRepository;
+    private final VectorStore vectorStore;
+    private final ExecutorService executor;
     private final double minSimilarityScore;
+    private final int hybridCandidates; // rows taken from each side before fusion
+    private final int rrfK;
     
     public SearchServiceImpl(
             EmbeddingService embeddingService,
             RcaEmbeddingRepository embeddingRepository,
             RcaPageRepository pageRepository,
             ParsedRcaRepository parsedRcaRepository,
-            @Value("${search.min-similarity-score:0.7}") double minSimilarityScore) {
+            VectorStore vectorStore,
+            @Qualifier(SearchExecutorConfig.SEARCH_EXECUTOR) ExecutorService executor,
+            @Value("${search.min-similarity-score:0.7}") double minSimilarityScore,
+            @Value("${search.hybrid.candidates:50}") int hybridCandidates,
+            @Value("${search.hybrid.rrf-k:60}") int rrfK) {
         this.embeddingService = embeddingService;
         this.embeddingRepository = embeddingRepository;
         this.pageRepository = pageRepository;
         this.parsedRcaRepository = parsedRcaRepository;
+        this.vectorStore = vectorStore;
+        this.executor = executor;
         this.minSimilarityScore = minSimilarityScore;
+        this.hybridCandidates = hybridCandidates;
+        this.rrfK = rrfK;
     }
     
     @Override
-    public List<SearchResult> searchSimilarRCAs(String query, int topK, String userId) {
-        // Generate embedding for query
-        List<Float> queryEmbedding = embeddingService.generateEmbedding(query);
-        if (queryEmbedding.isEmpty()) {
-            logger.warn("Failed to generate embedding for query: {}", query);
-            return new ArrayList<>();
-        }
-        
-        // Convert to vector string format
-        String vectorString = formatVector(queryEmbedding);
+    public SearchResponse search(String query, int topK, String userId,
+                                 SearchRequest.FilterBy filterBy, SearchRequest.Recall recall) {
+        StageTimings timings = new StageTimings();
+        int candidates = Math.max(hybridCandidates, topK * 2);
+        String tsQuery = toTsQuery(query);
+        // Filters run inside both queries, so a selective filter cannot empty the candidate lists
+        EmbeddingFilter filter = EmbeddingFilter.of(filterBy);
         
-        // Calculate max distance from similarity score (1 - similarity = distance)
-        double maxDistance = 1.0 - minSimilarityScore;
+        // The keyword side needs no vector, so it runs while the query is embedded
+        CompletableFuture<List<EmbeddingMatch>> keywordFuture = tsQuery.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : supply(timings.time("keyword", () -> embeddingRepository.findKeywordMatches(tsQuery, filter, candidates)));
+        CompletableFuture<float[]> embeddingFuture = supply(timings.time("embedding", () -> embeddingService.embed(query)));
+        CompletableFuture<List<EmbeddingMatch>> vectorFuture = embeddingFuture.thenApplyAsync(
+                timings.time("vector", queryEmbedding -> queryEmbedding.length == 0
+                        ? List.<EmbeddingMatch>of()
+                        : vectorStore.findNearest(queryEmbedding, candidates, filter, recall)), executor);
         
-        // Extract primary keyword for hybrid search (use first significant word)
-        String keyword = extractKeyword(query);
+        float[] queryEmbedding = join(embeddingFuture);
+        List<EmbeddingMatch> keywordMatches = join(keywordFuture);
+        if (queryEmbedding.length == 0) {
+            // The keyword side still answers; without a query vector its chunks cannot be scored, so their
+            // similarity stays unset and the response carries no query embedding
+            logger.warn("Failed to generate embedding for query, answering with keyword matches only: {}", query);
+            List<EmbeddingMatch> matches = timings.time("fusion", () -> fuse(List.of(), keywordMatches, topK)).get();
+            return timings.toResponse(query, timings.time("hydration", () -> hydrate(matches, Map.of())).get());
+        }
+        List<EmbeddingMatch> vectorMatches = join(vectorFuture);
         
-        // Perform hybrid search (vector + keyword)
-        List<Object[]> results = embeddingRepository.findHybridSearch(
-                vectorString, keyword, maxDistance, topK * 2); // Fetch more to filter
+        List<EmbeddingMatch> fused = timings.time("fusion", () -> fuse(vectorMatches, keywordMatches, topK)).get();
         
-        return convertToHybridSearchResults(results, topK);
+        // Keyword-only chunks have no similarity yet; score them while the pages are loaded
+        List<UUID> unscored = fused.stream().filter(match -> match.getScore() == null).map(EmbeddingMatch::getId).toList();
+        CompletableFuture<Map<UUID, Double>> scoresFuture = unscored.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : supply(() -> embeddingRepository.scoreChunks(VectorCodec.toText(queryEmbedding), unscored));
+        List<SearchResult> results = timings.time("hydration", () -> hydrate(fused, join(scoresFuture))).get();
+        SearchResponse response = timings.toResponse(query, results);
+        response.setQueryEmbedding(queryEmbedding);
+        return response;
     }
     
     /**
-     * Extract the most significant keyword from the query for hybrid search
+     * Build an OR tsquery from every significant query term, so any term can contribute a match.
+     * Terms are reduced to letters and digits, which keeps the to_tsquery syntax safe.
      */
-    private String extractKeyword(String query) {
-        // Simple extraction: use the longest word that's not a common stop word
-        String[] words = query.toLowerCase().split("\\s+");
-        String keyword = "";
-        for (String word : words) {
-            if (word.length() > keyword.length() && !isStopWord(word)) {
-                keyword = word;
+    private String toTsQuery(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : query.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() > 1 && !isStopWord(word)) {
+                terms.add(word);
             }
         }
-        return keyword.isEmpty() ? query : keyword;
+        return String.join(" | ", terms);
     }
     
     private boolean isStopWord(String word) {
@@ -87,115 +143,162 @@ public class SearchServiceImpl implements SearchService {
     }
     
     @Override
-    public List<SearchResult> searchBySymptoms(String symptoms, int topK) {
-        return searchSimilarRCAs(symptoms, topK, null);
-    }
-    
-    @Override
-    public List<SearchResult> searchByRootCause(String rootCause, int topK) {
-        // Generate embedding
-        List<Float> queryEmbedding = embeddingService.generateEmbedding(rootCause);
-        if (queryEmbedding.isEmpty()) {
-            return new ArrayList<>();
+    public SearchResponse searchRootCause(String rootCause, int topK, SearchRequest.FilterBy filterBy,
+                                          SearchRequest.Recall recall) {
+        StageTimings timings = new StageTimings();
+        float[] queryEmbedding = timings.time("embedding", () -> embeddingService.embed(rootCause)).get();
+        if (queryEmbedding.length == 0) {
+            return timings.toResponse(rootCause, new ArrayList<>());
         }
         
-        String vectorString = formatVector(queryEmbedding);
-        double maxDistance = 1.0 - minSimilarityScore;
-        
-        // Search only in ROOT_CAUSE chunks
-        List<Object[]> results = embeddingRepository.findSimilarEmbeddingsWithFilters(
-                vectorString, maxDistance, "ROOT_CAUSE", null, topK);
-        
-        return convertToSearchResults(results);
-    }
-    
-    private List<SearchResult> convertToSearchResults(List<Object[]> rawResults) {
-        return rawResults.stream()
-                .map(this::convertToSearchResult)
-                .filter(result -> result.getSimilarityScore() >= minSimilarityScore)
+        // Search only in ROOT_CAUSE chunks; the similarity threshold is applied before hydration
+        List<EmbeddingMatch> matches = timings.time("vector", () -> vectorStore.findNearest(queryEmbedding, topK,
+                EmbeddingFilter.of(filterBy).withChunkType("ROOT_CAUSE"), recall)).get();
+        List<EmbeddingMatch> accepted = matches.stream()
+                .filter(match -> match.getScore() >= minSimilarityScore)
                 .collect(Collectors.toList());
+        List<SearchResult> results = timings.time("hydration", () -> hydrate(accepted, Map.of())).get();
+        SearchResponse response = timings.toResponse(rootCause, results);
+        response.setQueryEmbedding(queryEmbedding);
+        return response;
     }
     
-    private List<SearchResult> convertToHybridSearchResults(List<Object[]> rawResults, int topK) {
-        // Hybrid query returns: all entity columns + vector_similarity + keyword_boost + combined_score
-        // Indices: 0-8 = entity columns, 9 = vector_similarity, 10 = keyword_boost, 11 = combined_score
-        return rawResults.stream()
-                .map(this::convertHybridToSearchResult)
-                .filter(result -> result.getSimilarityScore() >= minSimilarityScore * 0.8) // Slightly lower threshold for hybrid
+    /**
+     * Reciprocal-rank fusion of the vector and keyword candidate lists: each chunk scores
+     * sum(1 / (k + rank)) over the lists it appears in. Vector-only candidates must still pass a
+     * relaxed similarity threshold; keyword hits are kept since they matched lexically.
+     * The reported score stays the cosine similarity.
+     */
+    List<EmbeddingMatch> fuse(List<EmbeddingMatch> vectorMatches, List<EmbeddingMatch> keywordMatches, int topK) {
+        Map<UUID, EmbeddingMatch> matches = new HashMap<>();
+        Map<UUID, Double> fused = new HashMap<>();
+        Set<UUID> keywordHits = new HashSet<>();
+        // Vector matches go first so a chunk found by both sides keeps its computed score
+        for (List<EmbeddingMatch> ranking : List.of(vectorMatches, keywordMatches)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                EmbeddingMatch match = ranking.get(rank);
+                matches.putIfAbsent(match.getId(), match);
+                fused.merge(match.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+        keywordMatches.forEach(match -> keywordHits.add(match.getId()));
+        
+        return fused.entrySet().stream()
+                .sorted(Map.Entry.<UUID, Double>comparingByValue().reversed())
+                .map(entry -> matches.get(entry.getKey()))
+                .filter(match -> keywordHits.contains(match.getId())
+                        || match.getScore() >= minSimilarityScore * 0.8) // Slightly lower threshold for hybrid
                 .limit(topK)
                 .collect(Collectors.toList());
     }
     
-    private SearchResult convertHybridToSearchResult(Object[] row) {
-        // Hybrid query columns: id, page_id, chunk_index, chunk_type, content, embedding, metadata, created_at, updated_at, 
-        //                       vector_similarity, keyword_boost, combined_score
-        String pageId = (String) row[1];
-        String chunkType = (String) row[3];
-        String content = (String) row[4];
-        Double combinedScore = ((Number) row[11]).doubleValue(); // Use combined score
+    /**
+     * Attach page metadata and the parsed RCA to each candidate.
+     * Loads every distinct page of the candidate set with one query per table, both queries in parallel,
+     * and shares the parsed RCA DTO between chunks of the same page.
+     *
+     * @param scores similarity for matches that came without one; a match in neither is left unscored
+     */
+    private List<SearchResult> hydrate(List<EmbeddingMatch> matches, Map<UUID, Double> scores) {
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> pageIds = matches.stream().map(EmbeddingMatch::getPageId).collect(Collectors.toSet());
         
-        RcaPage page = pageRepository.findByPageId(pageId).orElse(null);
+        CompletableFuture<Map<String, RcaPage>> pagesFuture = supply(() -> {
+            Map<String, RcaPage> pages = new HashMap<>();
+            for (RcaPage page : pageRepository.findAllById(pageIds)) {
+                pages.put(page.getPageId(), page);
+            }
+            return pages;
+        });
+        CompletableFuture<Map<String, ParsedRcaDto>> parsedFuture = supply(() -> {
+            Map<String, ParsedRcaDto> parsedRcas = new HashMap<>();
+            for (ParsedRca pr : parsedRcaRepository.findByPageIdIn(pageIds)) {
+                ParsedRcaDto parsedRca = new ParsedRcaDto();
+                parsedRca.setPageId(pr.getPageId());
+                parsedRca.setSymptoms(pr.getSymptoms());
+                parsedRca.setRootCause(pr.getRootCause());
+                parsedRca.setResolution(pr.getResolution());
+                parsedRca.setIncidentDate(pr.getIncidentDate());
+                parsedRcas.put(pr.getPageId(), parsedRca);
+            }
+            return parsedRcas;
+        });
+        Map<String, RcaPage> pages = join(pagesFuture);
+        Map<String, ParsedRcaDto> parsedRcas = join(parsedFuture);
         
-        ParsedRcaDto parsedRca = null;
-        var parsedRcaOpt = parsedRcaRepository.findByPageId(pageId);
-        if (parsedRcaOpt.isPresent()) {
-            var pr = parsedRcaOpt.get();
-            parsedRca = new ParsedRcaDto();
-            parsedRca.setPageId(pr.getPageId());
-            parsedRca.setSymptoms(pr.getSymptoms());
-            parsedRca.setRootCause(pr.getRootCause());
-            parsedRca.setResolution(pr.getResolution());
-            parsedRca.setIncidentDate(pr.getIncidentDate());
+        List<SearchResult> results = new ArrayList<>(matches.size());
+        for (EmbeddingMatch match : matches) {
+            RcaPage page = pages.get(match.getPageId());
+            Double score = match.getScore() != null ? match.getScore() : scores.get(match.getId());
+            SearchResult result = new SearchResult();
+            result.setPageId(match.getPageId());
+            result.setTitle(page != null ? page.getTitle() : "");
+            result.setContent(match.getContent());
+            result.setConfluenceUrl(page != null ? page.getUrl() : "");
+            result.setSimilarityScore(score);
+            result.setChunkType(match.getChunkType());
+            result.setFullRCA(parsedRcas.get(match.getPageId()));
+            results.add(result);
+        }
+        return results;
+    }
+    
+    private <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+    
+    // Rethrow the stage's own exception rather than the CompletionException wrapper
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
-        
-        SearchResult result = new SearchResult();
-        result.setPageId(pageId);
-        result.setTitle(page != null ? page.getTitle() : "");
-        result.setContent(content);
-        result.setConfluenceUrl(page != null ? page.getUrl() : "");
-        result.setSimilarityScore(combinedScore);
-        result.setChunkType(chunkType);
-        result.setFullRCA(parsedRca);
-        return result;
     }
     
-    private SearchResult convertToSearchResult(Object[] row) {
-        // Native query returns columns: id, page_id, chunk_index, chunk_type, content, embedding, metadata, created_at, updated_at, similarity
-        // Indices: 0=id, 1=page_id, 2=chunk_index, 3=chunk_type, 4=content, 5=embedding, 6=metadata, 7=created_at, 8=updated_at, 9=similarity
-        String pageId = (String) row[1];
-        String chunkType = (String) row[3];
-        String content = (String) row[4];
-        Double similarity = ((Number) row[9]).doubleValue();
+    /**
+     * Wall time per stage of one search, in the order the stages are reported.
+     */
+    private static final class StageTimings {
+        private static final List<String> STAGES = List.of("embedding", "keyword", "vector", "fusion", "hydration");
         
-        RcaPage page = pageRepository.findByPageId(pageId).orElse(null);
+        private final long start = System.nanoTime();
+        private final Map<String, Long> millis = new ConcurrentHashMap<>();
         
-        ParsedRcaDto parsedRca = null;
-        var parsedRcaOpt = parsedRcaRepository.findByPageId(pageId);
-        if (parsedRcaOpt.isPresent()) {
-            var pr = parsedRcaOpt.get();
-            parsedRca = new ParsedRcaDto();
-            parsedRca.setPageId(pr.getPageId());
-            parsedRca.setSymptoms(pr.getSymptoms());
-            parsedRca.setRootCause(pr.getRootCause());
-            parsedRca.setResolution(pr.getResolution());
-            parsedRca.setIncidentDate(pr.getIncidentDate());
+        <T> Supplier<T> time(String stage, Supplier<T> task) {
+            return () -> {
+                long stageStart = System.nanoTime();
+                try {
+                    return task.get();
+                } finally {
+                    millis.put(stage, (System.nanoTime() - stageStart) / 1_000_000);
+                }
+            };
         }
         
-        SearchResult result = new SearchResult();
-        result.setPageId(pageId);
-        result.setTitle(page != null ? page.getTitle() : "");
-        result.setContent(content);
-        result.setConfluenceUrl(page != null ? page.getUrl() : "");
-        result.setSimilarityScore(similarity);
-        result.setChunkType(chunkType);
-        result.setFullRCA(parsedRca);
-        return result;
-    }
-    
-    private String formatVector(List<Float> vector) {
-        return "[" + vector.stream()
-                .map(f -> String.format("%.6f", f))
-                .collect(Collectors.joining(",")) + "]";
+        <A, T> Function<A, T> time(String stage, Function<A, T> task) {
+            return input -> time(stage, () -> task.apply(input)).get();
+        }
+        
+        SearchResponse toResponse(String query, List<SearchResult> results) {
+            Map<String, Long> ordered = new LinkedHashMap<>();
+            for (String stage : STAGES) {
+                Long value = millis.get(stage);
+                if (value != null) {
+                    ordered.put(stage, value);
+                }
+            }
+            ordered.put("search", (System.nanoTime() - start) / 1_000_000);
+            SearchResponse response = new SearchResponse();
+            response.setQuery(query);
+            response.setResults(results);
+            response.setTimings(ordered);
+            return response;
+        }
     }
 }
-
@@ -0,0 +1,175 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.SearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of LLM answers for near-identical questions over the same retrieved RCAs.
+ *
+ * <p>Entries are grouped by operation and the ordered page ids of the results the prompt was built from.
+ * Within a group, a lookup hits when the cosine similarity between its query embedding and the stored one
+ * reaches {@code llm.cache.similarity-threshold}; operations that do not use the query (root cause synthesis)
+ * pass no embedding and match on the pages alone. The embedding is the one the search already computed,
+ * so a lookup costs no provider call.
+ *
+ * <p>At most {@code llm.cache.max-entries} groups are kept, least recently used dropped first, each holding
+ * the {@value #ENTRIES_PER_GROUP} most recent phrasings. Re-ingesting a page drops every entry citing it.
+ */
+@Component
+public class SemanticSummaryCache {
+
+    static final int ENTRIES_PER_GROUP = 8;
+
+    private record GroupKey(String operation, List<String> pageIds) {}
+
+    private record Entry(float[] queryEmbedding, String answer, long storedAtMillis) {}
+
+    private final boolean enabled;
+    private final double threshold;
+    private final long ttlMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<GroupKey, List<Entry>> groups;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SemanticSummaryCache(
+            MeterRegistry meterRegistry,
+            @Value("${llm.cache.enabled:true}") boolean enabled,
+            @Value("${llm.cache.similarity-threshold:0.95}") double threshold,
+            @Value("${llm.cache.max-entries:500}") int maxEntries,
+            @Value("${llm.cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.groups = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GroupKey, List<Entry>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * Read before calling the LLM and pass to {@link #put}, so an answer built from a page that was
+     * re-ingested meanwhile is not stored.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * The closest cached answer within the similarity threshold, or null
+     *
+     * @param queryEmbedding query vector from the search, or null when the operation ignores the query
+     */
+    public String get(String operation, List<SearchResult> results, float[] queryEmbedding) {
+        if (!enabled || !isUsable(queryEmbedding)) {
+            return null;
+        }
+        GroupKey key = new GroupKey(operation, pageIds(results));
+        float[] normalized = normalize(queryEmbedding);
+        long now = System.currentTimeMillis();
+        String best = null;
+        double bestSimilarity = -1;
+        synchronized (groups) {
+            List<Entry> entries = groups.get(key);
+            if (entries != null) {
+                entries.removeIf(entry -> now - entry.storedAtMillis() >= ttlMillis);
+                for (Entry entry : entries) {
+                    double similarity = similarity(normalized, entry.queryEmbedding());
+                    if (similarity >= threshold && similarity > bestSimilarity) {
+                        best = entry.answer();
+                        bestSimilarity = similarity;
+                    }
+                }
+                if (entries.isEmpty()) {
+                    groups.remove(key);
+                }
+            }
+        }
+        (best != null ? hits : misses).increment();
+        return best;
+    }
+
+    public void put(String operation, List<SearchResult> results, float[] queryEmbedding, String answer, long generation) {
+        if (!enabled || !isUsable(queryEmbedding) || answer == null || generation != this.generation.get()) {
+            return;
+        }
+        GroupKey key = new GroupKey(operation, pageIds(results));
+        Entry entry = new Entry(normalize(queryEmbedding), answer, System.currentTimeMillis());
+        synchronized (groups) {
+            List<Entry> entries = groups.computeIfAbsent(key, k -> new ArrayList<>());
+            if (entries.size() >= ENTRIES_PER_GROUP) {
+                entries.remove(0);
+            }
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * Drop every answer built from {@code pageId}, after its content or embeddings changed
+     */
+    public void invalidatePage(String pageId) {
+        generation.incrementAndGet();
+        synchronized (groups) {
+            groups.keySet().removeIf(key -> key.pageIds().contains(pageId));
+        }
+    }
+
+    // An empty vector means embedding failed; a null one means the operation does not depend on the query
+    private static boolean isUsable(float[] queryEmbedding) {
+        return queryEmbedding == null || queryEmbedding.length > 0;
+    }
+
+    private static List<String> pageIds(List<SearchResult> results) {
+        return results.stream().map(SearchResult::getPageId).toList();
+    }
+
+    private static float[] normalize(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0 : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double similarity(float[] a, float[] b) {
+        if (a == null || b == null) {
+            return a == b ? 1.0 : -1.0;
+        }
+        if (a.length != b.length) {
+            return -1.0;
+        }
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("llm.cache.lookups")
+                .description("Semantic LLM answer cache lookups by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,227 @@
+package com.confluenceai.analyzer.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A chain of processing stages connected by bounded queues.
+ * Each stage has its own worker threads, so CPU-bound and I/O-bound stages overlap.
+ * A full downstream queue blocks the upstream workers (and finally {@link #submit}),
+ * which keeps the number of in-flight items, and therefore memory, bounded.
+ * Every item taken from a queue leaves the in-flight count exactly once, whatever a stage or the listener throws.
+ */
+public class StagedPipeline<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedPipeline.class);
+
+    @FunctionalInterface
+    public interface StageTask<T> {
+        void process(T item) throws Exception;
+    }
+
+    public interface Listener<T> {
+        void onSuccess(T item);
+
+        /**
+         * Called with whatever the stage threw, including {@link Error}s
+         */
+        void onFailure(T item, Throwable e);
+    }
+
+    private final String name;
+    private final List<Stage<T>> stages;
+    private final Listener<T> listener;
+    private final Predicate<T> finished;
+    private final Object inFlightLock = new Object();
+    private int inFlight;
+    private volatile boolean closed;
+
+    private StagedPipeline(String name, List<Stage<T>> stages, Listener<T> listener, Predicate<T> finished) {
+        this.name = name;
+        this.stages = stages;
+        this.listener = listener;
+        this.finished = finished;
+        for (int i = 0; i < stages.size(); i++) {
+            Stage<T> stage = stages.get(i);
+            Stage<T> next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+            for (int t = 0; t < stage.threads; t++) {
+                Thread worker = new Thread(() -> runWorker(stage, next), name + "-" + stage.name + "-" + t);
+                worker.setDaemon(true);
+                stage.workers.add(worker);
+                worker.start();
+            }
+        }
+    }
+
+    public static <T> Builder<T> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * Feed an item into the first stage, blocking while that stage's queue is full.
+     */
+    public void submit(T item) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Pipeline " + name + " is closed");
+        }
+        synchronized (inFlightLock) {
+            inFlight++;
+        }
+        try {
+            stages.get(0).queue.put(item);
+        } catch (InterruptedException e) {
+            complete();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until every submitted item has left the pipeline.
+     *
+     * @return false if {@code abort} became true before the pipeline drained
+     */
+    public boolean awaitCompletion(BooleanSupplier abort) throws InterruptedException {
+        synchronized (inFlightLock) {
+            while (inFlight > 0) {
+                if (abort.getAsBoolean()) {
+                    return false;
+                }
+                inFlightLock.wait(500);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop all workers. Items still queued, and items interrupted mid-stage, are dropped without callbacks.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Stage<T> stage : stages) {
+            stage.workers.forEach(Thread::interrupt);
+        }
+    }
+
+    private void runWorker(Stage<T> stage, Stage<T> next) {
+        while (!closed) {
+            T item;
+            try {
+                item = stage.queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // From here on the item is ours: every path below completes it or hands it to the next queue
+            try {
+                stage.task.process(item);
+            } catch (InterruptedException e) {
+                complete();
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                notifyListener(item, e);
+                continue;
+            }
+            boolean done;
+            try {
+                done = next == null || finished.test(item);
+            } catch (Throwable e) {
+                notifyListener(item, e);
+                continue;
+            }
+            if (done) {
+                notifyListener(item, null);
+                continue;
+            }
+            try {
+                next.queue.put(item);
+            } catch (InterruptedException e) {
+                complete();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void notifyListener(T item, Throwable error) {
+        try {
+            if (error == null) {
+                listener.onSuccess(item);
+            } else {
+                listener.onFailure(item, error);
+            }
+        } catch (Throwable e) {
+            logger.error("Pipeline {} listener failed", name, e);
+        } finally {
+            complete();
+        }
+    }
+
+    private void complete() {
+        synchronized (inFlightLock) {
+            inFlight--;
+            inFlightLock.notifyAll();
+        }
+    }
+
+    private static class Stage<T> {
+        private final String name;
+        private final int threads;
+        private final StageTask<T> task;
+        private final BlockingQueue<T> queue;
+        private final List<Thread> workers = new ArrayList<>();
+
+        private Stage(String name, int threads, StageTask<T> task, int queueCapacity) {
+            this.name = name;
+            this.threads = threads;
+            this.task = task;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    public static class Builder<T> {
+        private final String name;
+        private final List<Stage<T>> stages = new ArrayList<>();
+        private int queueCapacity = 50;
+        private Predicate<T> finished = item -> false;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Capacity of the queue in front of each stage added after this call.
+         */
+        public Builder<T> queueCapacity(int queueCapacity) {
+            this.queueCapacity = Math.max(1, queueCapacity);
+            return this;
+        }
+
+        /**
+         * Items matching this predicate after any stage skip the remaining stages and complete successfully.
+         */
+        public Builder<T> finishedWhen(Predicate<T> finished) {
+            this.finished = finished;
+            return this;
+        }
+
+        public Builder<T> stage(String stageName, int threads, StageTask<T> task) {
+            stages.add(new Stage<>(stageName, Math.max(1, threads), task, queueCapacity));
+            return this;
+        }
+
+        public StagedPipeline<T> build(Listener<T> listener) {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("Pipeline " + name + " has no stages");
+            }
+            return new StagedPipeline<>(name, List.copyOf(stages), listener, finished);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.config.IngestionExecutorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs sync jobs on the dedicated sync executor and keeps a cancellation handle per running sync.
+ */
+@Component
+public class SyncJobRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncJobRunner.class);
+
+    private final ThreadPoolTaskExecutor executor;
+    private final Map<UUID, SyncJob> jobs = new ConcurrentHashMap<>();
+
+    public SyncJobRunner(@Qualifier(IngestionExecutorConfig.SYNC_EXECUTOR) ThreadPoolTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queue a sync job. Throws {@link TaskRejectedException} when the sync queue is full.
+     */
+    public void submit(UUID syncId, Runnable task) {
+        SyncJob job = new SyncJob();
+        jobs.put(syncId, job);
+        try {
+            job.future = executor.submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    jobs.remove(syncId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            jobs.remove(syncId);
+            throw e;
+        }
+        logger.info("Sync {} queued (active: {}, queued: {})",
+                syncId, executor.getActiveCount(), executor.getThreadPoolExecutor().getQueue().size());
+    }
+
+    /**
+     * Request cancellation of a queued or running sync.
+     *
+     * @return false if the sync is not known to this runner (already finished or never started here)
+     */
+    public boolean cancel(UUID syncId) {
+        SyncJob job = jobs.get(syncId);
+        if (job == null) {
+            return false;
+        }
+        job.cancelled.set(true);
+        Future<?> future = job.future;
+        if (future != null) {
+            future.cancel(true);
+        }
+        jobs.remove(syncId);
+        logger.info("Sync {} cancellation requested", syncId);
+        return true;
+    }
+
+    /**
+     * Checked by the sync loop between pages so that cancellation takes effect promptly.
+     */
+    public boolean isCancelled(UUID syncId) {
+        SyncJob job = jobs.get(syncId);
+        return job == null || job.cancelled.get() || Thread.currentThread().isInterrupted();
+    }
+
+    private static class SyncJob {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private volatile Future<?> future;
+    }
+}
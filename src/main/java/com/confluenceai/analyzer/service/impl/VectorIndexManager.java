@@ -0,0 +1,320 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Owns the ANN index on {@code rca_embeddings.embedding}.
+ *
+ * <p>The index type comes from {@code search.index.type} ({@code hnsw}, {@code ivfflat} or {@code none}).
+ * Builds use {@code CREATE INDEX CONCURRENTLY} under a temporary name and swap it in, so searches and
+ * ingestion keep running during a rebuild. HNSW is maintained incrementally by PostgreSQL and is only
+ * built when missing; IVFFlat clusters are fixed at build time, so it is rebuilt with a new
+ * {@code lists} value whenever the table has doubled since the last build.
+ *
+ * <p>With {@code search.index.quantization} set to {@code halfvec} or {@code binary} the index is built over
+ * a quantized expression of the column (half or 1/32 of the size) instead of the full vectors; searches then
+ * take a short list from that index and re-rank it exactly (see {@link PostgresVectorStore}).
+ *
+ * <p>Per-query tuning ({@code hnsw.ef_search} / {@code ivfflat.probes}) is applied with
+ * {@code set_config(..., true)}, i.e. {@code SET LOCAL}, and must run inside the search transaction.
+ * Filtered searches switch on pgvector's iterative index scan (0.8+), so an index scan that runs out of
+ * rows passing the filter keeps scanning instead of returning fewer than requested; on older versions
+ * the candidate list is widened instead.
+ */
+@Component
+public class VectorIndexManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexManager.class);
+    
+    static final String INDEX_NAME = "idx_rca_embeddings_vector";
+    private static final String BUILD_NAME = INDEX_NAME + "_new";
+    private static final Pattern LISTS_PATTERN = Pattern.compile("lists\\s*=\\s*'?(\\d+)");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final String type;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final int hnswEfSearch;
+    private final int ivfflatLists;
+    private final String quantization;
+    private final int dimension;
+    private final AtomicBoolean building = new AtomicBoolean(false);
+    private volatile long rowsAtBuild = -1;
+    private volatile int activeLists;
+    private volatile Boolean iterativeScan;
+    
+    public VectorIndexManager(
+            JdbcTemplate jdbcTemplate,
+            @Value("${search.index.type:hnsw}") String type,
+            @Value("${search.index.hnsw.m:16}") int hnswM,
+            @Value("${search.index.hnsw.ef-construction:64}") int hnswEfConstruction,
+            @Value("${search.index.hnsw.ef-search:40}") int hnswEfSearch,
+            @Value("${search.index.ivfflat.lists:0}") int ivfflatLists,
+            @Value("${search.index.quantization:none}") String quantization,
+            @Value("${embedding.dimension:768}") int dimension) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.type = type.toLowerCase();
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+        this.hnswEfSearch = hnswEfSearch;
+        this.ivfflatLists = ivfflatLists; // 0 = derive from row count
+        this.quantization = quantization.toLowerCase();
+        this.dimension = dimension;
+    }
+    
+    /**
+     * Make sure the configured index exists once the schema is in place; builds run in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        if (isDisabled()) {
+            return;
+        }
+        Thread.ofPlatform().name("vector-index").daemon().start(() -> {
+            try {
+                String existing = existingDefinition();
+                if (existing == null || !matchesConfig(existing.toLowerCase())) {
+                    logger.info("Vector index {} missing or not {} ({} quantization), building", INDEX_NAME, type, quantization);
+                    rebuild();
+                } else {
+                    rowsAtBuild = countRows();
+                    activeLists = parseLists(existing);
+                }
+            } catch (DataAccessException e) {
+                logger.warn("Could not check vector index: {}", e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Called after a sync has written embeddings. Rebuilds an IVFFlat index that has outgrown its lists.
+     */
+    public void onBulkLoad() {
+        if (isDisabled() || building.get()) {
+            return;
+        }
+        try {
+            if (existingDefinition() == null) {
+                rebuild();
+            } else if (type.equals("ivfflat") && rowsAtBuild >= 0 && countRows() > Math.max(1000, rowsAtBuild * 2)) {
+                logger.info("rca_embeddings grew from {} rows, rebuilding IVFFlat index", rowsAtBuild);
+                rebuild();
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Vector index maintenance failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Build the index concurrently under a temporary name, then swap it with the current one.
+     *
+     * @return false if another build was already running
+     */
+    public boolean rebuild() {
+        if (isDisabled() || !building.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long rows = countRows();
+            long start = System.currentTimeMillis();
+            // A failed concurrent build leaves an INVALID index behind
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + BUILD_NAME);
+            int lists = type.equals("ivfflat") ? listsFor(rows) : 0;
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + BUILD_NAME + " ON rca_embeddings " + indexMethod(lists));
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + INDEX_NAME);
+            jdbcTemplate.execute("ALTER INDEX " + BUILD_NAME + " RENAME TO " + INDEX_NAME);
+            rowsAtBuild = rows;
+            activeLists = lists;
+            logger.info("Built {} vector index over {} rows in {} ms", type, rows, System.currentTimeMillis() - start);
+            return true;
+        } finally {
+            building.set(false);
+        }
+    }
+    
+    /**
+     * Set the recall knob of the active index for the current transaction only.
+     *
+     * @param candidates rows the query will ask for; HNSW never returns more than ef_search rows
+     * @param filtered whether the query restricts rows in the WHERE clause
+     */
+    public void applyQueryTuning(SearchRequest.Recall recall, int candidates, boolean filtered) {
+        SearchRequest.Recall hint = recall != null ? recall : SearchRequest.Recall.BALANCED;
+        boolean iterative = filtered && supportsIterativeScan();
+        // Without iterative scans the filter runs on ef_search / probes rows only, so scan more up front
+        int widen = filtered && !iterative ? 4 : 1;
+        if (type.equals("hnsw")) {
+            // The hint scales from what the query needs, so ACCURATE still searches wider than BALANCED
+            // when the candidate count exceeds the configured ef_search; FAST never drops below it
+            int base = Math.max(hnswEfSearch, candidates);
+            int efSearch = switch (hint) {
+                case FAST -> Math.max(candidates, Math.max(10, base / 2));
+                case BALANCED -> base;
+                case ACCURATE -> base * 4;
+            };
+            setLocal("hnsw.ef_search", Math.min(1000, efSearch * widen));
+            if (iterative) {
+                setLocal("hnsw.iterative_scan", "relaxed_order");
+            }
+        } else if (type.equals("ivfflat") && activeLists > 0) {
+            int balanced = (int) Math.max(1, Math.round(Math.sqrt(activeLists)));
+            int probes = switch (hint) {
+                case FAST -> Math.max(1, balanced / 2);
+                case BALANCED -> balanced;
+                case ACCURATE -> Math.max(balanced * 2, activeLists / 10);
+            };
+            setLocal("ivfflat.probes", Math.min(activeLists, probes * widen));
+            if (iterative) {
+                setLocal("ivfflat.iterative_scan", "relaxed_order");
+            }
+        }
+    }
+    
+    /**
+     * {@code none}, {@code halfvec} or {@code binary}; anything but {@code none} means the index only
+     * serves the coarse phase of a search.
+     */
+    public String getQuantization() {
+        return quantization;
+    }
+    
+    public boolean isQuantized() {
+        return quantization.equals("halfvec") || quantization.equals("binary");
+    }
+    
+    /**
+     * Dimension the quantized index expression is declared with; queries must cast to the same type.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+    
+    /**
+     * On-disk size of the active vector index, 0 if there is none
+     */
+    public long indexSizeBytes() {
+        Long size = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(pg_relation_size(to_regclass(?)), 0)", Long.class, INDEX_NAME);
+        return size != null ? size : 0;
+    }
+    
+    private void setLocal(String setting, int value) {
+        setLocal(setting, Integer.toString(value));
+    }
+    
+    private void setLocal(String setting, String value) {
+        jdbcTemplate.queryForObject("SELECT set_config(?, ?, true)", String.class, setting, value);
+    }
+    
+    // Iterative index scans arrived in pgvector 0.8.0; earlier versions reject the settings
+    private boolean supportsIterativeScan() {
+        Boolean supported = iterativeScan;
+        if (supported == null) {
+            List<String> versions = jdbcTemplate.queryForList(
+                    "SELECT extversion FROM pg_extension WHERE extname = 'vector'", String.class);
+            supported = !versions.isEmpty() && compareVersions(versions.get(0), "0.8.0") >= 0;
+            iterativeScan = supported;
+        }
+        return supported;
+    }
+    
+    private static int compareVersions(String a, String b) {
+        String[] left = a.split("\\.");
+        String[] right = b.split("\\.");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            int l = i < left.length ? parseVersionPart(left[i]) : 0;
+            int r = i < right.length ? parseVersionPart(right[i]) : 0;
+            if (l != r) {
+                return Integer.compare(l, r);
+            }
+        }
+        return 0;
+    }
+    
+    private static int parseVersionPart(String part) {
+        String digits = part.replaceAll("\\D.*", "");
+        return digits.isEmpty() ? 0 : Integer.parseInt(digits);
+    }
+    
+    private String indexMethod(int lists) {
+        if (type.equals("ivfflat")) {
+            return "USING ivfflat (" + indexedExpression() + ") WITH (lists = " + lists + ")";
+        }
+        return "USING hnsw (" + indexedExpression() + ") WITH (m = " + hnswM
+                + ", ef_construction = " + hnswEfConstruction + ")";
+    }
+    
+    // Expression and operator class; must match the ORDER BY of the queries exactly for the index to be used
+    private String indexedExpression() {
+        return switch (quantization) {
+            case "halfvec" -> "(embedding::halfvec(" + dimension + ")) halfvec_cosine_ops";
+            case "binary" -> "(binary_quantize(embedding)::bit(" + dimension + ")) bit_hamming_ops";
+            default -> "embedding vector_cosine_ops";
+        };
+    }
+    
+    private boolean matchesConfig(String definition) {
+        if (!definition.contains("using " + type)) {
+            return false;
+        }
+        return switch (quantization) {
+            case "halfvec" -> definition.contains("halfvec(" + dimension + ")");
+            case "binary" -> definition.contains("binary_quantize");
+            default -> !definition.contains("halfvec") && !definition.contains("binary_quantize");
+        };
+    }
+    
+    // pgvector guidance: rows / 1000 up to 1M rows, sqrt(rows) beyond
+    private int listsFor(long rows) {
+        if (ivfflatLists > 0) {
+            return ivfflatLists;
+        }
+        long lists = rows <= 1_000_000 ? rows / 1000 : (long) Math.sqrt(rows);
+        return (int) Math.max(10, lists);
+    }
+    
+    private String existingDefinition() {
+        List<String> definitions = jdbcTemplate.queryForList(
+                "SELECT indexdef FROM pg_indexes WHERE tablename = 'rca_embeddings' AND indexname = ?",
+                String.class, INDEX_NAME);
+        return definitions.isEmpty() ? null : definitions.get(0);
+    }
+    
+    private static int parseLists(String definition) {
+        Matcher matcher = LISTS_PATTERN.matcher(definition);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+    
+    /**
+     * Planner estimate, since an exact count is a full scan on a multi-million row table. The estimate is
+     * refreshed first: after a bulk load it is stale until autovacuum gets to ANALYZE, and a table that was
+     * never analyzed reports -1, in which case the rows are counted.
+     */
+    private long countRows() {
+        jdbcTemplate.execute("ANALYZE rca_embeddings");
+        Long estimate = jdbcTemplate.queryForObject(
+                "SELECT reltuples::bigint FROM pg_class WHERE relname = 'rca_embeddings'", Long.class);
+        if (estimate != null && estimate > 0) {
+            return estimate;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM rca_embeddings", Long.class);
+        return count != null ? count : 0;
+    }
+    
+    private boolean isDisabled() {
+        return !type.equals("hnsw") && !type.equals("ivfflat");
+    }
+}
@@ -0,0 +1,128 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.SearchRequest;
+import com.confluenceai.analyzer.repository.EmbeddingFilter;
+import com.confluenceai.analyzer.repository.EmbeddingMatch;
+import com.confluenceai.analyzer.service.VectorStore;
+import com.confluenceai.analyzer.vector.VectorCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Measures recall@k of the active {@link VectorStore} against an exact scan.
+ *
+ * <p>Stored chunk embeddings are sampled as queries (the chunk itself is excluded from both result lists),
+ * the exact top k comes from a sequential scan with index scans disabled, and recall is the share of it
+ * the store returned. Used to check that a quantized or in-process index keeps top-k recall while
+ * the index footprint shrinks.
+ */
+@Component
+public class VectorRecallBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorRecallBenchmark.class);
+
+    private static final String SAMPLE_SQL = """
+        SELECT id, embedding::text AS embedding
+        FROM rca_embeddings
+        WHERE embedding IS NOT NULL
+        ORDER BY random()
+        LIMIT ?
+        """;
+
+    private static final String EXACT_SQL = """
+        SELECT id
+        FROM rca_embeddings
+        WHERE id <> ? AND embedding IS NOT NULL
+        ORDER BY embedding <=> CAST(? AS vector)
+        LIMIT ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorStore vectorStore;
+    private final VectorIndexManager indexManager;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public VectorRecallBenchmark(
+            JdbcTemplate jdbcTemplate,
+            VectorStore vectorStore,
+            VectorIndexManager indexManager,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vectorStore = vectorStore;
+        this.indexManager = indexManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public Map<String, Object> run(int queries, int k, SearchRequest.Recall recall) {
+        List<Sample> samples = jdbcTemplate.query(SAMPLE_SQL,
+                (rs, rowNum) -> new Sample(rs.getObject("id", UUID.class), VectorCodec.parseText(rs.getString("embedding"))),
+                queries);
+
+        double recallSum = 0;
+        List<Long> latenciesMicros = new ArrayList<>(samples.size());
+        for (Sample sample : samples) {
+            Set<UUID> exact = new HashSet<>(exactNearest(sample, k));
+            if (exact.isEmpty()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            List<EmbeddingMatch> approximate = vectorStore.findNearest(sample.vector(), k + 1, EmbeddingFilter.NONE, recall);
+            latenciesMicros.add((System.nanoTime() - start) / 1_000);
+
+            long hits = approximate.stream()
+                    .map(EmbeddingMatch::getId)
+                    .filter(id -> !id.equals(sample.id()))
+                    .limit(k)
+                    .filter(exact::contains)
+                    .count();
+            recallSum += (double) hits / exact.size();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("vectorStore", vectorStore.getName());
+        report.put("quantization", indexManager.getQuantization());
+        report.put("recallHint", recall != null ? recall : SearchRequest.Recall.BALANCED);
+        report.put("k", k);
+        report.put("queries", latenciesMicros.size());
+        report.put("recallAtK", latenciesMicros.isEmpty() ? 0.0 : recallSum / latenciesMicros.size());
+        report.put("latencyP50Ms", percentile(latenciesMicros, 0.50) / 1000.0);
+        report.put("latencyP95Ms", percentile(latenciesMicros, 0.95) / 1000.0);
+        report.put("indexSizeBytes", vectorStore.indexSizeBytes());
+        logger.info("Vector recall benchmark: {}", report);
+        return report;
+    }
+
+    // Index scans off for this transaction only, so the ORDER BY is answered by an exact sequential scan
+    private List<UUID> exactNearest(Sample sample, int k) {
+        String vector = VectorCodec.toText(sample.vector());
+        return readOnlyTransaction.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('enable_indexscan', 'off', true)", String.class);
+            return jdbcTemplate.queryForList(EXACT_SQL, UUID.class, sample.id(), vector, k);
+        });
+    }
+
+    private static long percentile(List<Long> values, double percentile) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+    }
+
+    private record Sample(UUID id, float[] vector) {}
+}
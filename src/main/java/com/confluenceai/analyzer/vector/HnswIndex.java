@@ -0,0 +1,710 @@
+package com.confluenceai.analyzer.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical navigable small world graph (Malkov &amp; Yashunin) for cosine similarity.
+ *
+ * <p>Vectors are normalised on insert and kept in a memory-mapped file of {@code float}s, one slot per node,
+ * so similarity is a dot product and the OS page cache decides what stays resident. Graph links and chunk
+ * metadata live on the heap and are written to a side file by {@link #save}. Removed nodes are tombstoned:
+ * they keep routing searches but are never returned; {@link #compactInto} rebuilds without them.
+ *
+ * <p>A single mapping is limited to 2 GB, so the file is mapped in segments of whole vectors (up to 1 GB
+ * each) and only the last one grows. The file itself is contiguous, whatever the segment size.
+ *
+ * <p>A quantized index also keeps an int8 copy of every vector on the heap (one byte per dimension plus a
+ * per-vector scale, a quarter of the float size). Graph construction and traversal then only read the
+ * codes, and the float file is touched just to re-rank the {@code ef} candidates of a search exactly, so
+ * the resident working set shrinks to the codes plus the graph.
+ *
+ * <p>Searches take a read lock and may run concurrently; {@link #add} and {@link #remove} take the write lock.
+ */
+public class HnswIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x48534E57; // "HNSW"
+    private static final int FORMAT_VERSION = 2;
+    private static final int SEGMENT_BYTES = 1 << 30;
+
+    /** Chunk metadata carried by each node so results and filters need no database round trip */
+    public record Node(UUID id, String pageId, String chunkType, int chunkIndex, String content,
+                       String spaceKey, LocalDateTime incidentDate) {}
+
+    public record Match(Node node, float similarity) {}
+
+    private record Scored(int node, float score) {}
+
+    private static final Comparator<Scored> BEST_FIRST = Comparator.comparingDouble(Scored::score).reversed();
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble(Scored::score);
+
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Path vectorFile;
+    private final boolean quantized;
+    private final FileChannel channel;
+    private final int nodesPerSegment;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Segment s holds nodes [s * nodesPerSegment, (s + 1) * nodesPerSegment); codes are split the same way
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+    private final List<FloatBuffer> vectors = new ArrayList<>();
+    private final List<byte[]> codes = new ArrayList<>();
+    private int capacity;
+    private float[] scales = new float[0];
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<int[][]> links = new ArrayList<>(); // per node, per level: [count, neighbour...]
+    private final BitSet deleted = new BitSet();
+    private final Map<UUID, Integer> byId = new HashMap<>();
+    private final Map<String, List<Integer>> byPage = new HashMap<>();
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswIndex(Path vectorFile, int dimension, int m, int efConstruction, boolean quantized,
+                      int nodesPerSegment, int initialCapacity, StandardOpenOption... options) throws IOException {
+        this.vectorFile = vectorFile;
+        this.quantized = quantized;
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(Math.max(2, m));
+        this.nodesPerSegment = nodesPerSegment;
+        this.channel = FileChannel.open(vectorFile, options);
+        map(Math.max(1024, initialCapacity));
+    }
+
+    /**
+     * Start an empty index backed by {@code vectorFile} (truncated if it exists).
+     *
+     * @param quantized search over int8 codes and re-rank with the float vectors
+     */
+    public static HnswIndex create(Path vectorFile, int dimension, int m, int efConstruction,
+                                   boolean quantized) throws IOException {
+        return create(vectorFile, dimension, m, efConstruction, quantized, defaultNodesPerSegment(dimension));
+    }
+
+    static HnswIndex create(Path vectorFile, int dimension, int m, int efConstruction, boolean quantized,
+                            int nodesPerSegment) throws IOException {
+        Files.deleteIfExists(vectorFile);
+        return new HnswIndex(vectorFile, dimension, m, efConstruction, quantized, nodesPerSegment, 1024,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reopen an index written by {@link #save}; the vector file is the sibling recorded at save time.
+     * Codes are not persisted, so a quantized index re-encodes them from the float vectors.
+     *
+     * @throws IOException if the vector file is missing or too short to hold every saved node
+     */
+    public static Loaded load(Path metaFile, boolean quantized) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(metaFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognised index file " + metaFile);
+            }
+            int dimension = in.readInt();
+            int m = in.readInt();
+            int efConstruction = in.readInt();
+            int size = in.readInt();
+            Path vectorFile = metaFile.resolveSibling(readString(in));
+            String tag = readString(in);
+            long required = (long) size * dimension * Float.BYTES;
+            if (Files.size(vectorFile) < required) {
+                throw new IOException("Vector file " + vectorFile + " holds " + Files.size(vectorFile)
+                        + " bytes, expected at least " + required);
+            }
+            HnswIndex index = new HnswIndex(vectorFile, dimension, m, efConstruction, quantized,
+                    defaultNodesPerSegment(dimension), size, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Node node = new Node(new UUID(in.readLong(), in.readLong()), readString(in), readString(in),
+                        in.readInt(), readString(in), readString(in), parseDate(readString(in)));
+                boolean removed = in.readBoolean();
+                int[][] nodeLinks = new int[in.readInt() + 1][];
+                for (int level = 0; level < nodeLinks.length; level++) {
+                    int count = in.readInt();
+                    nodeLinks[level] = new int[index.maxConnections(level) + 1];
+                    nodeLinks[level][0] = count;
+                    for (int j = 1; j <= count; j++) {
+                        nodeLinks[level][j] = in.readInt();
+                    }
+                }
+                index.register(node, nodeLinks);
+                if (removed) {
+                    index.deleted.set(i);
+                    index.deletedCount++;
+                }
+            }
+            if (quantized) {
+                float[] vector = new float[dimension];
+                for (int i = 0; i < size; i++) {
+                    index.readVector(i, vector);
+                    index.encode(i, vector);
+                }
+            }
+            return new Loaded(index, tag);
+        }
+    }
+
+    public record Loaded(HnswIndex index, String tag) {}
+
+    /**
+     * Write graph and metadata to {@code metaFile} atomically and flush the mapped vectors.
+     *
+     * @param tag caller checkpoint (e.g. the ingestion watermark) restored by {@link #load}
+     */
+    public void save(Path metaFile, String tag) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (MappedByteBuffer segment : mapped) {
+                segment.force();
+            }
+            Path tmp = metaFile.resolveSibling(metaFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(dimension);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(nodes.size());
+                writeString(out, vectorFile.getFileName().toString());
+                writeString(out, tag);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int i = 0; i < nodes.size(); i++) {
+                    Node node = nodes.get(i);
+                    out.writeLong(node.id().getMostSignificantBits());
+                    out.writeLong(node.id().getLeastSignificantBits());
+                    writeString(out, node.pageId());
+                    writeString(out, node.chunkType());
+                    out.writeInt(node.chunkIndex());
+                    writeString(out, node.content());
+                    writeString(out, node.spaceKey());
+                    writeString(out, node.incidentDate() != null ? node.incidentDate().toString() : null);
+                    out.writeBoolean(deleted.get(i));
+                    int[][] nodeLinks = links.get(i);
+                    out.writeInt(nodeLinks.length - 1);
+                    for (int[] level : nodeLinks) {
+                        out.writeInt(level[0]);
+                        for (int j = 1; j <= level[0]; j++) {
+                            out.writeInt(level[j]);
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Insert a node; a node with the same id already in the index is left as is, or restored if tombstoned. */
+    public void add(Node node, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            Integer existing = byId.get(node.id());
+            if (existing != null) {
+                if (deleted.get(existing)) {
+                    deleted.clear(existing);
+                    deletedCount--;
+                }
+                return;
+            }
+            int level = (int) (-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                nodeLinks[l] = new int[maxConnections(l) + 1];
+            }
+            // Grow and write the vector first: a failure here must not leave a registered node without one
+            int index = nodes.size();
+            writeVector(index, normalized);
+            register(node, nodeLinks);
+
+            if (entryPoint < 0) {
+                entryPoint = index;
+                maxLevel = level;
+                return;
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = searchLayer(normalized, current, 1, l).get(0).node();
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Scored> candidates = searchLayer(normalized, current, efConstruction, l);
+                List<Scored> selected = selectNeighbours(candidates, maxConnections(l));
+                for (Scored neighbour : selected) {
+                    append(nodeLinks[l], neighbour.node());
+                    connect(neighbour.node(), index, l);
+                }
+                current = candidates.get(0).node();
+            }
+            if (level > maxLevel) {
+                entryPoint = index;
+                maxLevel = level;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Replace the metadata of the node with the same id and page, e.g. after a space move; false if there is none. */
+    public boolean updateNode(Node node) {
+        lock.writeLock().lock();
+        try {
+            Integer index = byId.get(node.id());
+            if (index == null || !nodes.get(index).pageId().equals(node.pageId())) {
+                return false;
+            }
+            nodes.set(index, node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Tombstone a node by id. */
+    public boolean remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            Integer index = byId.get(id);
+            if (index == null || deleted.get(index)) {
+                return false;
+            }
+            deleted.set(index);
+            deletedCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Tombstone every live node of a page whose id is not in {@code keep}; returns the number removed. */
+    public int removePageExcept(String pageId, Set<UUID> keep) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (int index : byPage.getOrDefault(pageId, List.of())) {
+                if (!deleted.get(index) && !keep.contains(nodes.get(index).id())) {
+                    deleted.set(index);
+                    deletedCount++;
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate k nearest live nodes accepted by {@code filter}, best first.
+     *
+     * @param ef size of the dynamic candidate list; larger is slower with better recall
+     */
+    public List<Match> search(float[] query, int k, int ef, Predicate<Node> filter) {
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = searchLayer(normalized, current, 1, l).get(0).node();
+            }
+            List<Scored> candidates = searchLayer(normalized, current, Math.max(ef, k), 0);
+            if (quantized) {
+                candidates = rerank(normalized, candidates);
+            }
+            List<Match> matches = new ArrayList<>(k);
+            for (Scored scored : candidates) {
+                Node node = nodes.get(scored.node());
+                if (!deleted.get(scored.node()) && filter.test(node)) {
+                    matches.add(new Match(node, scored.score()));
+                    if (matches.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Second phase of a quantized search: exact dot products over the float vectors of the candidates
+    private List<Scored> rerank(float[] query, List<Scored> candidates) {
+        List<Scored> exact = new ArrayList<>(candidates.size());
+        for (Scored candidate : candidates) {
+            exact.add(new Scored(candidate.node(), exactSimilarity(query, candidate.node())));
+        }
+        exact.sort(BEST_FIRST);
+        return exact;
+    }
+
+    /** Build a fresh index over {@code vectorFile} holding only the live nodes. */
+    public HnswIndex compactInto(Path vectorFile) throws IOException {
+        HnswIndex compacted = create(vectorFile, dimension, m, efConstruction, quantized);
+        lock.readLock().lock();
+        try {
+            float[] vector = new float[dimension];
+            for (int i = 0; i < nodes.size(); i++) {
+                if (!deleted.get(i)) {
+                    readVector(i, vector);
+                    compacted.add(nodes.get(i), vector);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return compacted;
+    }
+
+    /** Live node count per page, used to reconcile against the database. */
+    public Map<String, Integer> liveCountsByPage() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                if (!deleted.get(i)) {
+                    counts.merge(nodes.get(i).pageId(), 1, Integer::sum);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(UUID id) {
+        lock.readLock().lock();
+        try {
+            Integer index = byId.get(id);
+            return index != null && !deleted.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public Path vectorFile() {
+        return vectorFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int register(Node node, int[][] nodeLinks) {
+        int index = nodes.size();
+        nodes.add(node);
+        links.add(nodeLinks);
+        byId.put(node.id(), index);
+        byPage.computeIfAbsent(node.pageId(), key -> new ArrayList<>()).add(index);
+        return index;
+    }
+
+    /**
+     * Greedy best-first search of one layer from {@code start}, keeping the {@code ef} best nodes seen.
+     * Returns them best first. Tombstoned nodes are traversed like any other.
+     */
+    private List<Scored> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Scored> results = new PriorityQueue<>(WORST_FIRST);
+        Scored first = new Scored(start, similarity(query, start));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+        while (!candidates.isEmpty()) {
+            Scored current = candidates.poll();
+            if (results.size() >= ef && current.score() < results.peek().score()) {
+                break;
+            }
+            int[][] nodeLinks = links.get(current.node());
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] neighbours = nodeLinks[level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = similarity(query, neighbour);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Scored scored = new Scored(neighbour, score);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Scored> ordered = new ArrayList<>(results);
+        ordered.sort(BEST_FIRST);
+        return ordered;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base than to any
+     * neighbour already kept, which spreads links across clusters; fill up with the closest rest.
+     */
+    private List<Scored> selectNeighbours(List<Scored> candidates, int max) {
+        List<Scored> selected = new ArrayList<>(max);
+        List<Scored> skipped = new ArrayList<>();
+        for (Scored candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            boolean diverse = true;
+            for (Scored kept : selected) {
+                if (similarity(candidate.node(), kept.node()) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : skipped).add(candidate);
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] neighbours = links.get(from)[level];
+        if (neighbours[0] < neighbours.length - 1) {
+            append(neighbours, to);
+            return;
+        }
+        // Full: re-select among current neighbours plus the new one
+        List<Scored> candidates = new ArrayList<>(neighbours[0] + 1);
+        for (int i = 1; i <= neighbours[0]; i++) {
+            candidates.add(new Scored(neighbours[i], similarity(from, neighbours[i])));
+        }
+        candidates.add(new Scored(to, similarity(from, to)));
+        candidates.sort(BEST_FIRST);
+        List<Scored> selected = selectNeighbours(candidates, neighbours.length - 1);
+        neighbours[0] = 0;
+        for (Scored scored : selected) {
+            append(neighbours, scored.node());
+        }
+    }
+
+    private static void append(int[] neighbours, int node) {
+        neighbours[++neighbours[0]] = node;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private float similarity(float[] query, int node) {
+        if (quantized) {
+            // Asymmetric: the float query against the node's codes
+            byte[] segment = codes.get(node / nodesPerSegment);
+            int offset = (node % nodesPerSegment) * dimension;
+            float dot = 0;
+            for (int i = 0; i < dimension; i++) {
+                dot += query[i] * segment[offset + i];
+            }
+            return dot * scales[node];
+        }
+        return exactSimilarity(query, node);
+    }
+
+    private float exactSimilarity(float[] query, int node) {
+        FloatBuffer segment = vectors.get(node / nodesPerSegment);
+        int offset = (node % nodesPerSegment) * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * segment.get(offset + i);
+        }
+        return dot;
+    }
+
+    private float similarity(int a, int b) {
+        int offsetA = (a % nodesPerSegment) * dimension;
+        int offsetB = (b % nodesPerSegment) * dimension;
+        if (quantized) {
+            byte[] segmentA = codes.get(a / nodesPerSegment);
+            byte[] segmentB = codes.get(b / nodesPerSegment);
+            int dot = 0;
+            for (int i = 0; i < dimension; i++) {
+                dot += segmentA[offsetA + i] * segmentB[offsetB + i];
+            }
+            return dot * scales[a] * scales[b];
+        }
+        FloatBuffer segmentA = vectors.get(a / nodesPerSegment);
+        FloatBuffer segmentB = vectors.get(b / nodesPerSegment);
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += segmentA.get(offsetA + i) * segmentB.get(offsetB + i);
+        }
+        return dot;
+    }
+
+    private void readVector(int index, float[] vector) {
+        vectors.get(index / nodesPerSegment).get((index % nodesPerSegment) * dimension, vector);
+    }
+
+    private void writeVector(int index, float[] vector) {
+        if (index >= capacity) {
+            try {
+                map((int) Math.min(Integer.MAX_VALUE, 2L * capacity));
+            } catch (IOException | RuntimeException e) {
+                throw new IllegalStateException("Could not grow vector file " + vectorFile, e);
+            }
+        }
+        vectors.get(index / nodesPerSegment).put((index % nodesPerSegment) * dimension, vector);
+        if (quantized) {
+            encode(index, vector);
+        }
+    }
+
+    // Symmetric scalar quantization with a per-vector scale, so each vector uses the full int8 range
+    private void encode(int index, float[] vector) {
+        float max = 0;
+        for (float v : vector) {
+            max = Math.max(max, Math.abs(v));
+        }
+        float scale = max > 0 ? max / 127f : 1f;
+        byte[] segment = codes.get(index / nodesPerSegment);
+        int offset = (index % nodesPerSegment) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            segment[offset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        scales[index] = scale;
+    }
+
+    /**
+     * Map enough segments for {@code newCapacity} nodes. Full segments keep their mapping; the last, partial
+     * one is remapped at its new length. Mapping past the end of a READ_WRITE channel extends the file.
+     */
+    private void map(int newCapacity) throws IOException {
+        for (int s = capacity / nodesPerSegment; (long) s * nodesPerSegment < newCapacity; s++) {
+            int segmentNodes = (int) Math.min(nodesPerSegment, newCapacity - (long) s * nodesPerSegment);
+            long position = (long) s * nodesPerSegment * dimension * Float.BYTES;
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) segmentNodes * dimension * Float.BYTES);
+            FloatBuffer floats = segment.order(ByteOrder.nativeOrder()).asFloatBuffer();
+            if (s < mapped.size()) {
+                mapped.set(s, segment);
+                vectors.set(s, floats);
+                if (quantized) {
+                    codes.set(s, Arrays.copyOf(codes.get(s), segmentNodes * dimension));
+                }
+            } else {
+                mapped.add(segment);
+                vectors.add(floats);
+                if (quantized) {
+                    codes.add(new byte[segmentNodes * dimension]);
+                }
+            }
+        }
+        if (quantized) {
+            scales = Arrays.copyOf(scales, newCapacity);
+        }
+        capacity = newCapacity;
+    }
+
+    private static int defaultNodesPerSegment(int dimension) {
+        return Math.max(1, SEGMENT_BYTES / (dimension * Float.BYTES));
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package com.confluenceai.analyzer.vector;
+
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+import java.sql.SQLException;
+
+/**
+ * JDBC parameter/result object for the pgvector {@code vector} type.
+ * The driver sends and reads the binary form when binary transfer is enabled for the type's OID, which
+ * {@code DataSourceConfig} does on every pooled connection, otherwise the text form; either way no
+ * intermediate string is built by callers.
+ */
+public class PgVector extends PGobject implements PGBinaryObject {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private float[] vector;
+    
+    public PgVector() {
+        setType("vector");
+    }
+    
+    public PgVector(float[] vector) {
+        this();
+        this.vector = vector;
+    }
+    
+    public float[] toArray() {
+        return vector;
+    }
+    
+    @Override
+    public void setValue(String value) throws SQLException {
+        try {
+            vector = value == null ? null : VectorCodec.parseText(value);
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid vector literal", e);
+        }
+    }
+    
+    @Override
+    public String getValue() {
+        return vector == null ? null : VectorCodec.toText(vector);
+    }
+    
+    @Override
+    public boolean isNull() {
+        return vector == null;
+    }
+    
+    @Override
+    public void setByteValue(byte[] bytes, int offset) {
+        vector = VectorCodec.parseBinary(bytes, offset);
+    }
+    
+    @Override
+    public int lengthInBytes() {
+        return vector == null ? 0 : VectorCodec.binaryLength(vector);
+    }
+    
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        VectorCodec.writeBinary(vector, bytes, offset);
+    }
+}
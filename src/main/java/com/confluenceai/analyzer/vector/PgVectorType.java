@@ -0,0 +1,72 @@
+package com.confluenceai.analyzer.vector;
+
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.usertype.UserType;
+import org.postgresql.util.PGobject;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Maps a pgvector column to {@code float[]}, binding values as {@link PgVector}
+ * so entities never go through a formatted string.
+ */
+public class PgVectorType implements UserType<float[]> {
+    
+    @Override
+    public int getSqlType() {
+        return Types.OTHER;
+    }
+    
+    @Override
+    public Class<float[]> returnedClass() {
+        return float[].class;
+    }
+    
+    @Override
+    public boolean equals(float[] x, float[] y) {
+        return Arrays.equals(x, y);
+    }
+    
+    @Override
+    public int hashCode(float[] x) {
+        return Arrays.hashCode(x);
+    }
+    
+    @Override
+    public float[] nullSafeGet(ResultSet rs, int position, WrapperOptions options) throws SQLException {
+        Object value = rs.getObject(position);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof PgVector vector) {
+            return vector.toArray();
+        }
+        if (value instanceof PGobject object) {
+            return object.getValue() == null ? null : VectorCodec.parseText(object.getValue());
+        }
+        return VectorCodec.parseText(value.toString());
+    }
+    
+    @Override
+    public void nullSafeSet(PreparedStatement st, float[] value, int index, WrapperOptions options) throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.OTHER);
+        } else {
+            st.setObject(index, new PgVector(value));
+        }
+    }
+    
+    @Override
+    public float[] deepCopy(float[] value) {
+        return value == null ? null : value.clone();
+    }
+    
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+}
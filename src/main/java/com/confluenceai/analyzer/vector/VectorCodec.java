@@ -0,0 +1,108 @@
+package com.confluenceai.analyzer.vector;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Conversions between float vectors and the pgvector wire formats.
+ *
+ * <p>Text format is {@code [x1,x2,...]}, written with {@link Float#toString(float)} into a presized
+ * builder: locale-independent, shortest round-trip representation, no per-element String objects.
+ * Binary format is pgvector's {@code vector_send} layout: int16 dimension, int16 unused, then
+ * big-endian float4 values.
+ */
+public final class VectorCodec {
+    
+    // "-1.2345678E-10," is the longest common form; most values are shorter
+    private static final int CHARS_PER_ELEMENT = 12;
+    
+    private VectorCodec() {}
+    
+    public static String toText(float[] vector) {
+        StringBuilder sb = new StringBuilder(2 + vector.length * CHARS_PER_ELEMENT);
+        sb.append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+    
+    public static String toText(List<Float> vector) {
+        return toText(toArray(vector));
+    }
+    
+    public static float[] parseText(String text) {
+        int start = text.indexOf('[') + 1;
+        int end = text.lastIndexOf(']');
+        if (end < 0) {
+            end = text.length();
+        }
+        if (end <= start || text.substring(start, end).isBlank()) {
+            return new float[0];
+        }
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ',') {
+                count++;
+            }
+        }
+        float[] vector = new float[count];
+        int from = start;
+        for (int i = 0; i < count; i++) {
+            int comma = text.indexOf(',', from);
+            int to = comma < 0 || comma > end ? end : comma;
+            vector[i] = Float.parseFloat(text.substring(from, to).trim());
+            from = to + 1;
+        }
+        return vector;
+    }
+    
+    public static int binaryLength(float[] vector) {
+        return 4 + vector.length * Float.BYTES;
+    }
+    
+    public static void writeBinary(float[] vector, byte[] target, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(target, offset, binaryLength(vector));
+        buffer.putShort((short) vector.length);
+        buffer.putShort((short) 0);
+        for (float v : vector) {
+            buffer.putFloat(v);
+        }
+    }
+    
+    public static byte[] toBinary(float[] vector) {
+        byte[] bytes = new byte[binaryLength(vector)];
+        writeBinary(vector, bytes, 0);
+        return bytes;
+    }
+    
+    public static float[] parseBinary(byte[] bytes, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+        int dimension = buffer.getShort() & 0xFFFF;
+        buffer.getShort(); // unused
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = buffer.getFloat();
+        }
+        return vector;
+    }
+    
+    public static float[] toArray(List<Float> vector) {
+        float[] array = new float[vector.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.get(i);
+        }
+        return array;
+    }
+    
+    public static List<Float> toList(float[] vector) {
+        Float[] boxed = new Float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            boxed[i] = vector[i];
+        }
+        return List.of(boxed);
+    }
+}
@@ -17,6 +17,9 @@ CREATE TABLE IF NOT EXISTS rca_pages (
     url TEXT NOT NULL,
     tags TEXT[],
     last_modified TIMESTAMP NOT NULL,
+    content_version INTEGER, -- Confluence version number last embedded
+    content_hash VARCHAR(64), -- SHA-256 of the body last embedded
+    embedding_fingerprint VARCHAR(64), -- SHA-256 of the chunking and embedding settings last used
     ingested_at TIMESTAMP DEFAULT NOW(),
     parsed_at TIMESTAMP,
     embedding_generated_at TIMESTAMP,
@@ -25,6 +28,12 @@ CREATE TABLE IF NOT EXISTS rca_pages (
     created_at TIMESTAMP DEFAULT NOW()
 );
 
+-- Upgrade existing installations
+ALTER TABLE rca_pages ADD COLUMN IF NOT EXISTS content_version INTEGER;
+ALTER TABLE rca_pages ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+-- Pages embedded before this column existed are re-embedded once, as their settings are unknown
+ALTER TABLE rca_pages ADD COLUMN IF NOT EXISTS embedding_fingerprint VARCHAR(64);
+
 CREATE INDEX IF NOT EXISTS idx_rca_pages_space_key ON rca_pages(space_key);
 CREATE INDEX IF NOT EXISTS idx_rca_pages_status ON rca_pages(status);
 CREATE INDEX IF NOT EXISTS idx_rca_pages_last_modified ON rca_pages(last_modified);
@@ -59,23 +68,44 @@ CREATE TABLE IF NOT EXISTS rca_embeddings (
     chunk_index INTEGER NOT NULL,
     chunk_type VARCHAR(50) NOT NULL, -- 'SYMPTOMS' or 'ROOT_CAUSE'
     content TEXT NOT NULL,
+    space_key VARCHAR(255), -- copied from rca_pages so filters run inside the vector query
+    incident_date TIMESTAMP, -- copied from parsed_rca
     embedding vector(768), -- Gemini text-embedding-004 dimension (768) or OpenAI (1536)
+    content_tsv tsvector GENERATED ALWAYS AS (to_tsvector('english', content)) STORED, -- keyword side of hybrid search
     metadata JSONB,
     created_at TIMESTAMP DEFAULT NOW(),
     updated_at TIMESTAMP DEFAULT NOW(),
     CONSTRAINT unique_page_chunk UNIQUE(page_id, chunk_index, chunk_type)
 );
 
--- Vector similarity search index (IVFFlat for approximate nearest neighbor)
--- Note: Create index after inserting some data for better performance
--- Lists parameter: adjust based on dataset size (rows / 1000, minimum 10)
-CREATE INDEX IF NOT EXISTS idx_rca_embeddings_vector ON rca_embeddings 
-    USING ivfflat (embedding vector_cosine_ops) WITH (lists = 100);
+-- Vector similarity search index (idx_rca_embeddings_vector) is managed by the application:
+-- VectorIndexManager builds HNSW or IVFFlat (search.index.type) concurrently at startup and
+-- rebuilds IVFFlat with a lists value sized to the data after bulk loads. With search.index.quantization
+-- (halfvec or binary) the index covers a quantized expression and searches re-rank on this column.
+
+ALTER TABLE rca_embeddings ADD COLUMN IF NOT EXISTS content_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', content)) STORED;
+
+ALTER TABLE rca_embeddings ADD COLUMN IF NOT EXISTS space_key VARCHAR(255);
+ALTER TABLE rca_embeddings ADD COLUMN IF NOT EXISTS incident_date TIMESTAMP;
+
+-- Backfill rows embedded before the filter columns existed
+UPDATE rca_embeddings e SET space_key = p.space_key
+FROM rca_pages p WHERE p.page_id = e.page_id AND e.space_key IS NULL;
+UPDATE rca_embeddings e SET incident_date = pr.incident_date
+FROM parsed_rca pr WHERE pr.page_id = e.page_id AND e.incident_date IS NULL AND pr.incident_date IS NOT NULL;
+
+-- Full-text index for the keyword candidates of hybrid search
+CREATE INDEX IF NOT EXISTS idx_rca_embeddings_content_tsv ON rca_embeddings USING GIN(content_tsv);
 
 -- Standard indexes for filtering
 CREATE INDEX IF NOT EXISTS idx_rca_embeddings_page_id ON rca_embeddings(page_id);
 CREATE INDEX IF NOT EXISTS idx_rca_embeddings_chunk_type ON rca_embeddings(chunk_type);
+CREATE INDEX IF NOT EXISTS idx_rca_embeddings_space_key ON rca_embeddings(space_key);
+CREATE INDEX IF NOT EXISTS idx_rca_embeddings_incident_date ON rca_embeddings(incident_date);
 CREATE INDEX IF NOT EXISTS idx_rca_embeddings_metadata ON rca_embeddings USING GIN(metadata);
+-- Keyset scan used by the in-process vector index to pull changed rows
+CREATE INDEX IF NOT EXISTS idx_rca_embeddings_updated_at ON rca_embeddings(updated_at, id);
 
 -- =====================================================
 -- 4. Sync History Table
@@ -88,17 +118,42 @@ CREATE TABLE IF NOT EXISTS sync_history (
     pages_fetched INTEGER DEFAULT 0,
     pages_processed INTEGER DEFAULT 0,
     pages_failed INTEGER DEFAULT 0,
+    pages_skipped INTEGER DEFAULT 0,
+    embeddings_written INTEGER DEFAULT 0,
+    embedding_write_ms BIGINT DEFAULT 0,
     started_at TIMESTAMP DEFAULT NOW(),
     completed_at TIMESTAMP,
-    status VARCHAR(50) DEFAULT 'RUNNING', -- RUNNING, COMPLETED, FAILED
+    status VARCHAR(50) DEFAULT 'RUNNING', -- RUNNING, COMPLETED, FAILED, CANCELLED
     error_message TEXT,
     created_at TIMESTAMP DEFAULT NOW()
 );
 
+ALTER TABLE sync_history ADD COLUMN IF NOT EXISTS pages_skipped INTEGER DEFAULT 0;
+ALTER TABLE sync_history ADD COLUMN IF NOT EXISTS embeddings_written INTEGER DEFAULT 0;
+ALTER TABLE sync_history ADD COLUMN IF NOT EXISTS embedding_write_ms BIGINT DEFAULT 0;
+
 CREATE INDEX IF NOT EXISTS idx_sync_history_status ON sync_history(status);
 CREATE INDEX IF NOT EXISTS idx_sync_history_started_at ON sync_history(started_at);
 CREATE INDEX IF NOT EXISTS idx_sync_history_sync_type ON sync_history(sync_type);
 
+-- Per-space high-water mark for incremental syncs
+CREATE TABLE IF NOT EXISTS sync_watermarks (
+    space_key VARCHAR(255) PRIMARY KEY,
+    last_modified TIMESTAMP NOT NULL, -- newest Confluence lastModified fully ingested for the space
+    updated_at TIMESTAMP DEFAULT NOW()
+);
+
+-- Embedding cache shared across syncs and searches
+-- Keyed by model + dimension + SHA-256 of the embedded text, so identical text is embedded once per model
+CREATE TABLE IF NOT EXISTS embedding_cache (
+    model VARCHAR(100) NOT NULL,
+    dimension INTEGER NOT NULL,
+    text_hash VARCHAR(64) NOT NULL,
+    embedding vector NOT NULL, -- unconstrained dimension: one table serves every model
+    created_at TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (model, dimension, text_hash)
+);
+
 -- =====================================================
 -- 5. User Permissions Cache Table
 -- Caches Confluence space permissions per user
@@ -163,6 +218,8 @@ COMMENT ON TABLE rca_pages IS 'Metadata about Confluence pages containing RCA do
 COMMENT ON TABLE parsed_rca IS 'Structured data extracted from RCA documents (symptoms, root cause, resolution)';
 COMMENT ON TABLE rca_embeddings IS 'Vector embeddings for semantic search. Each chunk (symptoms/root cause) is embedded separately';
 COMMENT ON TABLE sync_history IS 'History of Confluence sync operations';
+COMMENT ON TABLE sync_watermarks IS 'Per-space high-water marks used by INCREMENTAL syncs';
+COMMENT ON TABLE embedding_cache IS 'Provider embeddings keyed by model, dimension and text hash; safe to truncate';
 COMMENT ON TABLE user_permissions IS 'Cached Confluence space permissions per user';
 
 COMMENT ON COLUMN rca_embeddings.embedding IS 'Vector embedding of dimension 1536 (OpenAI text-embedding-3-large)';
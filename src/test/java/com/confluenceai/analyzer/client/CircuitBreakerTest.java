@@ -0,0 +1,125 @@
+package com.confluenceai.analyzer.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 1000;
+
+    private long now;
+
+    // Window of 4 calls, opening at 50% failures once 4 are recorded
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 4, 4, 0.5,
+            Duration.ofMillis(OPEN_MILLIS), new SimpleMeterRegistry(), () -> now);
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        fail(3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensAtFailureRateThreshold() {
+        succeed(2);
+        fail(2);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertThrows(CircuitBreaker.CallNotPermittedException.class, () -> breaker.execute(() -> "unreachable"));
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        fail(1);
+        succeed(4);
+        fail(1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterOpenDuration() {
+        open();
+        now += OPEN_MILLIS;
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        open();
+        now += OPEN_MILLIS;
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+
+        now += OPEN_MILLIS;
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void staleSuccessDoesNotCloseHalfOpenBreaker() {
+        CircuitBreaker.Permit slow = breaker.tryAcquire();
+        open();
+        now += OPEN_MILLIS;
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+
+        breaker.onSuccess(slow);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void staleOutcomesDoNotCountInTheNextWindow() {
+        CircuitBreaker.Permit slow = breaker.tryAcquire();
+        open();
+        now += OPEN_MILLIS;
+        breaker.onSuccess(breaker.tryAcquire());
+
+        // Three fresh failures plus the stale one would reach the minimum and open the breaker
+        fail(3);
+        breaker.onFailure(slow);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void executeRecordsExceptionsAndRethrows() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.execute(() -> {
+                throw new IllegalStateException("provider down");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void open() {
+        fail(4);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onSuccess(breaker.tryAcquire());
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+    }
+}
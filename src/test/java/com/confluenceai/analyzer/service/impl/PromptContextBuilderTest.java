@@ -0,0 +1,114 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.dto.ParsedRcaDto;
+import com.confluenceai.analyzer.dto.SearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptContextBuilderTest {
+
+    private static final List<PromptContextBuilder.Section> SECTIONS =
+            List.of(PromptContextBuilder.Section.SYMPTOMS, PromptContextBuilder.Section.ROOT_CAUSE);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void textWithinBudgetIsKeptWhole() {
+        String text = "Disk filled up. Cleanup failed.";
+        assertEquals(text, PromptContextBuilder.extract(text, "disk", 100));
+    }
+
+    @Test
+    void overBudgetKeepsBestMatchingSentencesInDocumentOrder() {
+        String text = "Disk filled up on the database host. The weather was nice. Cleanup job failed silently.";
+
+        String extracted = PromptContextBuilder.extract(text, "database disk cleanup", 18);
+
+        assertEquals("Disk filled up on the database host. Cleanup job failed silently.", extracted);
+    }
+
+    @Test
+    void singleSentenceOverBudgetIsCutAtTheBudget() {
+        String sentence = "Connection pool exhausted ".repeat(10).strip();
+
+        String extracted = PromptContextBuilder.extract(sentence, "connection pool", 10);
+
+        assertTrue(extracted.endsWith("..."));
+        assertTrue(sentence.startsWith(extracted.substring(0, extracted.length() - 3)));
+        assertTrue(PromptContextBuilder.estimateTokens(extracted) <= 10);
+    }
+
+    @Test
+    void noBudgetSelectsNothing() {
+        assertEquals("", PromptContextBuilder.extract("Disk filled up.", "disk", 0));
+    }
+
+    @Test
+    void bestRankedChunkRepresentsItsPage() {
+        PromptContextBuilder builder = new PromptContextBuilder(registry, 1000);
+        List<SearchResult> results = List.of(
+                result("1", "Disk outage", 0.91, "Disk filled up."),
+                result("1", "Disk outage", 0.75, "Disk filled up."),
+                result("2", "Pool outage", 0.80, "Connection pool exhausted."));
+
+        String context = builder.build("summary", "disk", results, SECTIONS);
+
+        assertTrue(context.contains("Similarity: 0.91"));
+        assertFalse(context.contains("Similarity: 0.75"));
+        assertTrue(context.contains("Pool outage"));
+    }
+
+    @Test
+    void pagesAreDroppedOnceTheRemainingShareCannotHoldThem() {
+        PromptContextBuilder builder = new PromptContextBuilder(registry, 120);
+        List<SearchResult> results = List.of(
+                result("1", "Disk outage", 0.91, "Disk filled up."),
+                result("2", "Outage " + "x".repeat(200), 0.85, "Connection pool exhausted."),
+                result("3", "Cache outage", 0.80, "Cache evicted everything."));
+
+        String context = builder.build("summary", "disk", results, SECTIONS);
+
+        assertTrue(context.contains("Disk outage"));
+        assertFalse(context.contains("Outage x"));
+        assertFalse(context.contains("Cache outage"));
+        assertEquals(2, registry.counter("llm.context.dropped.pages", "operation", "summary").count());
+    }
+
+    @Test
+    void contextStaysWithinTheBudget() {
+        int maxTokens = 200;
+        PromptContextBuilder builder = new PromptContextBuilder(registry, maxTokens);
+        String longText = "The primary database ran out of disk space during the nightly batch. ".repeat(20);
+        List<SearchResult> results = List.of(
+                result("1", "Disk outage", 0.91, longText),
+                result("2", "Disk outage again", 0.88, longText),
+                result("3", "Disk outage once more", 0.86, longText));
+
+        String context = builder.build("summary", "database disk", results, SECTIONS);
+
+        assertTrue(context.contains("Disk outage once more"));
+        assertTrue(PromptContextBuilder.estimateTokens(context) <= maxTokens,
+                "context used " + PromptContextBuilder.estimateTokens(context) + " tokens");
+        assertTrue(registry.counter("llm.context.truncated.sections", "operation", "summary").count() > 0);
+    }
+
+    private static SearchResult result(String pageId, String title, double score, String text) {
+        ParsedRcaDto rca = new ParsedRcaDto();
+        rca.setPageId(pageId);
+        rca.setSymptoms(text);
+        rca.setRootCause(text);
+        SearchResult result = new SearchResult();
+        result.setPageId(pageId);
+        result.setTitle(title);
+        result.setSimilarityScore(score);
+        result.setConfluenceUrl("https://wiki.example.com/pages/" + pageId);
+        result.setFullRCA(rca);
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package com.confluenceai.analyzer.service.impl;
+
+import com.confluenceai.analyzer.repository.EmbeddingMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchServiceImplTest {
+
+    private static final double MIN_SIMILARITY = 0.7;
+
+    // Fusion needs none of the collaborators
+    private final SearchServiceImpl search = new SearchServiceImpl(null, null, null, null, null, null,
+            MIN_SIMILARITY, 50, 60);
+
+    @Test
+    void chunkFoundByBothSidesRanksFirstAndKeepsItsVectorScore() {
+        List<EmbeddingMatch> vector = List.of(match(1, 0.95), match(2, 0.90));
+        List<EmbeddingMatch> keyword = List.of(match(3, null), match(2, null));
+
+        List<EmbeddingMatch> fused = search.fuse(vector, keyword, 10);
+
+        assertEquals(List.of(id(2), id(1), id(3)), ids(fused));
+        assertEquals(0.90, fused.get(0).getScore());
+    }
+
+    @Test
+    void vectorOnlyChunksNeedTheRelaxedThreshold() {
+        double relaxed = MIN_SIMILARITY * 0.8;
+        List<EmbeddingMatch> vector = List.of(match(1, relaxed + 0.01), match(2, relaxed - 0.01));
+
+        assertEquals(List.of(id(1)), ids(search.fuse(vector, List.of(), 10)));
+    }
+
+    @Test
+    void keywordHitsAreKeptWithoutAScore() {
+        List<EmbeddingMatch> vector = List.of(match(1, 0.1));
+        List<EmbeddingMatch> keyword = List.of(match(2, null), match(1, null));
+
+        List<EmbeddingMatch> fused = search.fuse(vector, keyword, 10);
+
+        assertEquals(List.of(id(1), id(2)), ids(fused));
+        assertNull(fused.get(1).getScore());
+    }
+
+    @Test
+    void keywordOnlyFusionKeepsKeywordOrder() {
+        List<EmbeddingMatch> keyword = List.of(match(3, null), match(1, null), match(2, null));
+
+        assertEquals(List.of(id(3), id(1), id(2)), ids(search.fuse(List.of(), keyword, 10)));
+    }
+
+    @Test
+    void resultIsCutAtTopK() {
+        List<EmbeddingMatch> vector = List.of(match(1, 0.99), match(2, 0.98), match(3, 0.97), match(4, 0.96));
+
+        assertEquals(List.of(id(1), id(2)), ids(search.fuse(vector, List.of(), 2)));
+    }
+
+    private static List<UUID> ids(List<EmbeddingMatch> matches) {
+        return matches.stream().map(EmbeddingMatch::getId).toList();
+    }
+
+    private static UUID id(int i) {
+        return new UUID(0, i);
+    }
+
+    private static EmbeddingMatch match(int i, Double score) {
+        return new Match(id(i), "page-" + i, "ROOT_CAUSE", 0, "chunk " + i, score);
+    }
+
+    private record Match(UUID id, String pageId, String chunkType, Integer chunkIndex, String content, Double score)
+            implements EmbeddingMatch {
+        @Override public UUID getId() { return id; }
+        @Override public String getPageId() { return pageId; }
+        @Override public String getChunkType() { return chunkType; }
+        @Override public Integer getChunkIndex() { return chunkIndex; }
+        @Override public String getContent() { return content; }
+        @Override public Double getScore() { return score; }
+    }
+}
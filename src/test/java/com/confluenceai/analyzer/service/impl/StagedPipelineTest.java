@@ -0,0 +1,151 @@
+package com.confluenceai.analyzer.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StagedPipelineTest {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Set<Integer> succeeded = ConcurrentHashMap.newKeySet();
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+    private final StagedPipeline.Listener<Integer> recorder = new StagedPipeline.Listener<>() {
+        @Override
+        public void onSuccess(Integer item) {
+            succeeded.add(item);
+        }
+
+        @Override
+        public void onFailure(Integer item, Throwable e) {
+            failures.add(e);
+        }
+    };
+
+    @Test
+    void everySubmittedItemCompletes() throws Exception {
+        try (StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder("test")
+                .queueCapacity(2)
+                .stage("a", 2, item -> {})
+                .stage("b", 3, item -> {})
+                .build(recorder)) {
+            for (int i = 0; i < 100; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(pipeline.awaitCompletion(deadline()));
+        }
+        assertEquals(100, succeeded.size());
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    void exceptionsAndErrorsAreReportedAndWorkersSurvive() throws Exception {
+        try (StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder("test")
+                .stage("only", 1, item -> {
+                    if (item == 1) {
+                        throw new IllegalStateException("bad item");
+                    }
+                    if (item == 2) {
+                        throw new AssertionError("stage error");
+                    }
+                })
+                .build(recorder)) {
+            for (int i = 0; i < 5; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(pipeline.awaitCompletion(deadline()));
+        }
+        assertEquals(Set.of(0, 3, 4), succeeded);
+        assertEquals(2, failures.size());
+        assertTrue(failures.stream().anyMatch(e -> e instanceof IllegalStateException));
+        assertTrue(failures.stream().anyMatch(e -> e instanceof AssertionError));
+    }
+
+    @Test
+    void listenerFailureStillCompletesItem() throws Exception {
+        StagedPipeline.Listener<Integer> throwing = new StagedPipeline.Listener<>() {
+            @Override
+            public void onSuccess(Integer item) {
+                throw new RuntimeException("listener broke");
+            }
+
+            @Override
+            public void onFailure(Integer item, Throwable e) {
+                throw new RuntimeException("listener broke");
+            }
+        };
+        try (StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder("test")
+                .stage("only", 1, item -> {})
+                .build(throwing)) {
+            pipeline.submit(1);
+            pipeline.submit(2);
+            assertTrue(pipeline.awaitCompletion(deadline()));
+        }
+    }
+
+    @Test
+    void finishedItemsSkipRemainingStages() throws Exception {
+        Set<Integer> reachedSecond = ConcurrentHashMap.newKeySet();
+        try (StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder("test")
+                .finishedWhen(item -> item % 2 == 0)
+                .stage("first", 1, item -> {})
+                .stage("second", 1, reachedSecond::add)
+                .build(recorder)) {
+            for (int i = 0; i < 6; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(pipeline.awaitCompletion(deadline()));
+        }
+        assertEquals(Set.of(1, 3, 5), reachedSecond);
+        assertEquals(6, succeeded.size());
+    }
+
+    @Test
+    void interruptedItemLeavesInFlightCount() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder("test")
+                .stage("blocking", 1, item -> {
+                    started.countDown();
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                })
+                .build(recorder);
+        pipeline.submit(1);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        pipeline.close();
+
+        assertTrue(pipeline.awaitCompletion(deadline()));
+        assertTrue(succeeded.isEmpty());
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    void abortStopsWaiting() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (StagedPipeline<Integer> pipeline = StagedPipeline.<Integer>builder("test")
+                .stage("blocking", 1, item -> release.await())
+                .build(recorder)) {
+            pipeline.submit(1);
+            assertFalse(pipeline.awaitCompletion(() -> true));
+            release.countDown();
+            assertTrue(pipeline.awaitCompletion(deadline()));
+        }
+        assertEquals(Set.of(1), succeeded);
+    }
+
+    private static BooleanSupplier deadline() {
+        long end = System.nanoTime() + TIMEOUT_NANOS;
+        return () -> System.nanoTime() > end;
+    }
+}
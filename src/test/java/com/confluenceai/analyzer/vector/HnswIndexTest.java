@@ -0,0 +1,211 @@
+package com.confluenceai.analyzer.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 64;
+    private static final int SIZE = 3000;
+    private static final int CLUSTERS = 30;
+    private static final int QUERIES = 50;
+    private static final int K = 10;
+    private static final int EF = 40;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(42);
+    private final List<float[]> centres = centres();
+
+    @Test
+    void recallAgainstExactSearch() throws IOException {
+        assertRecall(false, 0.9);
+    }
+
+    @Test
+    void quantizedRecallAgainstExactSearch() throws IOException {
+        assertRecall(true, 0.9);
+    }
+
+    @Test
+    void removedNodesAreNotReturned() throws IOException {
+        List<float[]> vectors = randomVectors(200);
+        try (HnswIndex index = build(vectors, false)) {
+            HnswIndex.Node first = node(0);
+            assertTrue(index.remove(first.id()));
+            assertFalse(index.contains(first.id()));
+            List<HnswIndex.Match> matches = index.search(vectors.get(0), K, 64, node -> true);
+            assertTrue(matches.stream().noneMatch(match -> match.node().id().equals(first.id())));
+            assertEquals(1, index.deletedCount());
+        }
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        List<float[]> vectors = randomVectors(500);
+        Path meta = directory.resolve("index.meta");
+        List<float[]> queries = randomVectors(10);
+        List<List<HnswIndex.Match>> before = new ArrayList<>();
+        try (HnswIndex index = build(vectors, false)) {
+            index.remove(node(7).id());
+            for (float[] query : queries) {
+                before.add(index.search(query, K, 64, node -> true));
+            }
+            index.save(meta, "2024-01-02T03:04:05");
+        }
+
+        HnswIndex.Loaded loaded = HnswIndex.load(meta, false);
+        try (HnswIndex index = loaded.index()) {
+            assertEquals("2024-01-02T03:04:05", loaded.tag());
+            assertEquals(vectors.size(), index.size());
+            assertEquals(1, index.deletedCount());
+            assertFalse(index.contains(node(7).id()));
+            assertTrue(index.contains(node(8).id()));
+            for (int i = 0; i < queries.size(); i++) {
+                List<HnswIndex.Match> after = index.search(queries.get(i), K, 64, node -> true);
+                assertEquals(before.get(i), after);
+            }
+        }
+    }
+
+    @Test
+    void vectorsSpanSeveralSegments() throws IOException {
+        List<float[]> vectors = randomVectors(1500);
+        Path meta = directory.resolve("index.meta");
+        float[] query = vectors.get(1234);
+        try (HnswIndex index = HnswIndex.create(directory.resolve("vectors-0.f32"), DIMENSION, 16, 100, true, 100)) {
+            for (int i = 0; i < vectors.size(); i++) {
+                index.add(node(i), vectors.get(i));
+            }
+            assertEquals(node(1234).id(), index.search(query, 1, EF, node -> true).get(0).node().id());
+            index.save(meta, "tag");
+        }
+
+        // The file layout does not depend on the segment size, so it reloads with the default one
+        try (HnswIndex index = HnswIndex.load(meta, true).index()) {
+            assertEquals(vectors.size(), index.size());
+            assertEquals(node(1234).id(), index.search(query, 1, EF, node -> true).get(0).node().id());
+        }
+    }
+
+    @Test
+    void loadRejectsMissingVectorFile() throws IOException {
+        Path meta = directory.resolve("index.meta");
+        try (HnswIndex index = build(randomVectors(10), false)) {
+            index.save(meta, "tag");
+            Files.delete(index.vectorFile());
+        }
+        assertThrows(IOException.class, () -> HnswIndex.load(meta, false));
+    }
+
+    @Test
+    void loadRejectsTruncatedVectorFile() throws IOException {
+        Path meta = directory.resolve("index.meta");
+        Path vectorFile;
+        try (HnswIndex index = build(randomVectors(2000), false)) {
+            index.save(meta, "tag");
+            vectorFile = index.vectorFile();
+        }
+        try (FileChannel channel = FileChannel.open(vectorFile, StandardOpenOption.WRITE)) {
+            channel.truncate(1000L * DIMENSION * Float.BYTES);
+        }
+        assertThrows(IOException.class, () -> HnswIndex.load(meta, false));
+    }
+
+    private void assertRecall(boolean quantized, double minimum) throws IOException {
+        List<float[]> vectors = randomVectors(SIZE);
+        try (HnswIndex index = build(vectors, quantized)) {
+            int found = 0;
+            for (float[] query : randomVectors(QUERIES)) {
+                Set<UUID> exact = exactNearest(vectors, query);
+                for (HnswIndex.Match match : index.search(query, K, EF, node -> true)) {
+                    if (exact.contains(match.node().id())) {
+                        found++;
+                    }
+                }
+            }
+            double recall = (double) found / (QUERIES * K);
+            assertTrue(recall >= minimum, "recall@" + K + " was " + recall);
+        }
+    }
+
+    private HnswIndex build(List<float[]> vectors, boolean quantized) throws IOException {
+        HnswIndex index = HnswIndex.create(directory.resolve("vectors-0.f32"), DIMENSION, 16, 100, quantized);
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(node(i), vectors.get(i));
+        }
+        return index;
+    }
+
+    private static Set<UUID> exactNearest(List<float[]> vectors, float[] query) {
+        return IntStream.range(0, vectors.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -cosine(query, vectors.get(i))))
+                .limit(K)
+                .map(i -> node(i).id())
+                .collect(HashSet::new, Set::add, Set::addAll);
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static HnswIndex.Node node(int i) {
+        return new HnswIndex.Node(new UUID(0, i), "page-" + (i / 5), "ROOT_CAUSE", i % 5,
+                "chunk " + i, "OPS", LocalDateTime.of(2024, 1, 1, 0, 0));
+    }
+
+    // Embeddings of related documents cluster loosely, so the synthetic vectors are drawn around a few centres
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] centre = centres.get(random.nextInt(CLUSTERS));
+            float[] vector = new float[DIMENSION];
+            for (int j = 0; j < DIMENSION; j++) {
+                vector[j] = centre[j] + 2 * (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    private List<float[]> centres() {
+        List<float[]> centres = new ArrayList<>(CLUSTERS);
+        for (int i = 0; i < CLUSTERS; i++) {
+            float[] centre = new float[DIMENSION];
+            for (int j = 0; j < DIMENSION; j++) {
+                centre[j] = (float) random.nextGaussian();
+            }
+            centres.add(centre);
+        }
+        return centres;
+    }
+}